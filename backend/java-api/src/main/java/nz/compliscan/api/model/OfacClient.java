@@ -4,62 +4,184 @@ import nz.compliscan.api.refdata.model.SanctionEntry;
 import org.apache.commons.csv.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Component
 public class OfacClient {
-    private final WebClient http;
     private final RefdataProperties props;
+    private final ConditionalFetcher<SanctionEntry> fetcher;
+    private final ConditionalFetcher<AltName> altFetcher;
+
+    /** One row of alt.csv / cons_alt.csv: an alternate name of the entry with that uid. */
+    record AltName(String uid, String name) {
+    }
+
+    // Treasury publishes alt.csv and cons_alt.csv without a header row:
+    // ent_num, alt_num, alt_type, alt_name, alt_remarks, with -0- for empty
+    private static final int ALT_UID = 0;
+    private static final int ALT_NAME = 3;
+    private static final String NO_VALUE = "-0-";
 
     public OfacClient(WebClient http, RefdataProperties props) {
-        this.http = http;
         this.props = props;
+        this.fetcher = new ConditionalFetcher<>(http, OfacClient::parse);
+        this.altFetcher = new ConditionalFetcher<>(http, OfacClient::parseAlt);
+    }
+
+    /**
+     * Fetches SDN and Consolidated, and their alias files, with conditional
+     * requests; a source that has not changed since the last call comes back
+     * with its previous rows unparsed. Aliases are attached to the entries of
+     * the same list by uid. {@code force} re-downloads and re-parses all.
+     */
+    public Fetched<SanctionEntry> fetch(boolean force) {
+        return fetch(force, Runnable::run).join();
+    }
+
+    /** Same as {@link #fetch(boolean)}, downloading all four files concurrently on {@code executor}. */
+    public CompletableFuture<Fetched<SanctionEntry>> fetch(boolean force, Executor executor) {
+        var sdn = CompletableFuture.supplyAsync(
+                () -> fetcher.fetch(props.getOfacSdnUrl(), "OFAC:SDN", force), executor);
+        var cons = CompletableFuture.supplyAsync(
+                () -> fetcher.fetch(props.getOfacConsolidatedUrl(), "OFAC:Consolidated", force), executor);
+        var sdnAlt = fetchAlt(props.getOfacSdnAltUrl(), "OFAC:SDN alt", force, executor);
+        var consAlt = fetchAlt(props.getOfacConsolidatedAltUrl(), "OFAC:Consolidated alt", force, executor);
+        return CompletableFuture.allOf(sdn, cons, sdnAlt, consAlt).thenApply(done -> {
+            var a = sdn.join();
+            var b = cons.join();
+            var aAlt = sdnAlt.join();
+            var bAlt = consAlt.join();
+            var all = new ArrayList<SanctionEntry>(a.rows().size() + b.rows().size());
+            all.addAll(withAliases(a.rows(), aAlt.rows()));
+            all.addAll(withAliases(b.rows(), bAlt.rows()));
+            var reports = new ArrayList<>(List.of(a.report(), b.report()));
+            for (var alt : List.of(aAlt, bAlt)) {
+                if (alt.report() != null)
+                    reports.add(alt.report());
+            }
+            return new Fetched<>(all, List.copyOf(reports));
+        });
+    }
+
+    /** Seeds every file's fallback rows, aliases included, e.g. from a snapshot restored at startup. */
+    public void seed(List<SanctionEntry> rows) {
+        var sdn = new ArrayList<SanctionEntry>();
+        var cons = new ArrayList<SanctionEntry>();
+        var sdnAlt = new ArrayList<AltName>();
+        var consAlt = new ArrayList<AltName>();
+        for (var e : rows) {
+            boolean isSdn = "OFAC:SDN".equals(e.source());
+            (isSdn ? sdn : cons).add(e);
+            for (String a : e.aliases())
+                (isSdn ? sdnAlt : consAlt).add(new AltName(e.uid(), a));
+        }
+        fetcher.seed(props.getOfacSdnUrl(), sdn);
+        fetcher.seed(props.getOfacConsolidatedUrl(), cons);
+        if (!isBlank(props.getOfacSdnAltUrl()))
+            altFetcher.seed(props.getOfacSdnAltUrl(), sdnAlt);
+        if (!isBlank(props.getOfacConsolidatedAltUrl()))
+            altFetcher.seed(props.getOfacConsolidatedAltUrl(), consAlt);
+    }
+
+    private CompletableFuture<ConditionalFetcher.Result<AltName>> fetchAlt(String url, String source, boolean force,
+            Executor executor) {
+        if (isBlank(url))
+            return CompletableFuture.completedFuture(new ConditionalFetcher.Result<>(List.of(), null));
+        return CompletableFuture.supplyAsync(() -> altFetcher.fetch(url, source, force), executor);
+    }
+
+    // replaces each row's aliases with those listed under its uid
+    private static List<SanctionEntry> withAliases(List<SanctionEntry> rows, List<AltName> alts) {
+        var byUid = new HashMap<String, List<String>>();
+        for (var a : alts)
+            byUid.computeIfAbsent(a.uid(), k -> new ArrayList<>()).add(a.name());
+        var out = new ArrayList<SanctionEntry>(rows.size());
+        for (var e : rows) {
+            var names = e.uid().isBlank() ? null : byUid.get(e.uid());
+            out.add(names == null && e.aliases().isEmpty() ? e : e.withAliases(names));
+        }
+        return out;
     }
 
-    public List<SanctionEntry> fetchAll() {
-        var all = new ArrayList<SanctionEntry>();
-        all.addAll(fetchCsv(props.getOfacSdnUrl(), "OFAC:SDN"));
-        all.addAll(fetchCsv(props.getOfacConsolidatedUrl(), "OFAC:Consolidated"));
-        return all;
+    private static List<SanctionEntry> parse(Reader reader, String source) throws IOException {
+        Iterable<CSVRecord> recs = CSVFormat.DEFAULT
+                .withFirstRecordAsHeader()
+                .parse(reader);
+
+        var out = new ArrayList<SanctionEntry>();
+        var seen = new HashMap<String, String>();
+        for (var r : recs) {
+            // OFAC CSV headers vary. Try common ones:
+            String name = pick(r, "name", "SDN_Name", "Entity", "Individual", "Last Name");
+            if (name == null || name.isBlank())
+                continue;
+
+            String program = pick(r, "program", "Program", "Programs", "Remarks");
+            String type = pick(r, "sdnType", "Type", "SDN_Type", "sdn_type");
+            String uid = pick(r, "uid", "ent_num", "ID", "Unique ID", "sdn_uid", "entity_number");
+
+            out.add(new SanctionEntry(source, name.trim(), ConditionalFetcher.shared(seen, program),
+                    ConditionalFetcher.shared(seen, type), orEmpty(uid)));
+        }
+        return out;
     }
 
-    private List<SanctionEntry> fetchCsv(String url, String source) {
-        try {
-            byte[] bytes = http.get().uri(url)
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    .onErrorResume(e -> Mono.empty())
-                    .block();
-            if (bytes == null)
-                return List.of();
-
-            try (var reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
-                Iterable<CSVRecord> recs = CSVFormat.DEFAULT
-                        .withFirstRecordAsHeader()
-                        .parse(reader);
-
-                var out = new ArrayList<SanctionEntry>();
-                for (var r : recs) {
-                    // OFAC CSV headers vary. Try common ones:
-                    String name = pick(r, "name", "SDN_Name", "Entity", "Individual", "Last Name");
-                    if (name == null || name.isBlank())
-                        continue;
-
-                    String program = pick(r, "program", "Program", "Programs", "Remarks");
-                    String type = pick(r, "sdnType", "Type", "SDN_Type", "sdn_type");
-                    String uid = pick(r, "uid", "uid", "ID", "Unique ID", "sdn_uid", "entity_number");
-
-                    out.add(new SanctionEntry(source, name.trim(), orEmpty(program), orEmpty(type), orEmpty(uid)));
-                }
-                return out;
+    /**
+     * Reads an alias file either with a header row naming its uid and alias
+     * columns, or in Treasury's headerless layout. A file that is neither
+     * throws, so the source is reported as failed rather than as fetched
+     * with no aliases.
+     */
+    private static List<AltName> parseAlt(Reader reader, String source) throws IOException {
+        Iterable<CSVRecord> recs = CSVFormat.DEFAULT.parse(reader);
+
+        var out = new ArrayList<AltName>();
+        int uidCol = -1;
+        int nameCol = -1;
+        for (var r : recs) {
+            if (uidCol < 0) {
+                uidCol = column(r, "ent_num", "uid", "ID", "sdn_uid", "entity_number");
+                nameCol = column(r, "alt_name", "name", "alias");
+                if (uidCol >= 0 && nameCol >= 0)
+                    continue;
+                if (r.size() <= ALT_NAME || !isNumber(r.get(ALT_UID)))
+                    throw new IOException("no uid and alias name columns in " + source);
+                uidCol = ALT_UID;
+                nameCol = ALT_NAME;
             }
-        } catch (Exception e) {
-            return List.of();
+            // short rows include the end-of-file marker Treasury appends
+            if (r.size() <= Math.max(uidCol, nameCol))
+                continue;
+            String uid = r.get(uidCol).trim();
+            String name = r.get(nameCol).trim();
+            if (!uid.isEmpty() && !name.isEmpty() && !NO_VALUE.equals(name))
+                out.add(new AltName(uid, name));
         }
+        return out;
+    }
+
+    // index of the first cell of a header row equal to one of the keys, or -1
+    private static int column(CSVRecord header, String... keys) {
+        for (var k : keys) {
+            for (int i = 0; i < header.size(); i++) {
+                if (k.equalsIgnoreCase(header.get(i).trim()))
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNumber(String s) {
+        String t = s.trim();
+        return !t.isEmpty() && t.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
     }
 
     private static String pick(CSVRecord r, String... keys) {
@@ -4,50 +4,68 @@ import nz.compliscan.api.refdata.model.PepEntry;
 import org.apache.commons.csv.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Component
 public class PepClient {
-    private final WebClient http;
     private final RefdataProperties props;
+    private final ConditionalFetcher<PepEntry> fetcher;
 
     public PepClient(WebClient http, RefdataProperties props) {
-        this.http = http;
         this.props = props;
+        this.fetcher = new ConditionalFetcher<>(http, PepClient::parse);
     }
 
-    public List<PepEntry> fetchAll() {
-        try {
-            byte[] bytes = http.get().uri(props.getPepCsvUrl())
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    .onErrorResume(e -> Mono.empty())
-                    .block();
-            if (bytes == null)
-                return List.of();
+    /** Conditional fetch of the PEP CSV; see {@link OfacClient#fetch(boolean)}. */
+    public Fetched<PepEntry> fetch(boolean force) {
+        return fetch(force, Runnable::run).join();
+    }
 
-            try (var reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
-                Iterable<CSVRecord> recs = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader);
-                var out = new ArrayList<PepEntry>();
-                for (var r : recs) {
-                    String name = pick(r, "name", "full_name", "caption", "person.name");
-                    if (name == null || name.isBlank())
-                        continue;
-                    String country = pick(r, "country", "country_name", "countries");
-                    String role = pick(r, "position", "role", "function");
-                    String source = pick(r, "dataset", "source", "publisher");
-                    String uid = pick(r, "id", "entity_id", "os_id");
-                    out.add(new PepEntry(name.trim(), orEmpty(country), orEmpty(role), orEmpty(source), orEmpty(uid)));
-                }
-                return out;
-            }
-        } catch (Exception e) {
+    public CompletableFuture<Fetched<PepEntry>> fetch(boolean force, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            var pep = fetcher.fetch(props.getPepCsvUrl(), "PEP", force);
+            return new Fetched<>(pep.rows(), List.of(pep.report()));
+        }, executor);
+    }
+
+    /** Seeds the fallback rows, e.g. from a snapshot restored at startup. */
+    public void seed(List<PepEntry> rows) {
+        fetcher.seed(props.getPepCsvUrl(), rows);
+    }
+
+    private static List<PepEntry> parse(Reader reader, String source) throws IOException {
+        Iterable<CSVRecord> recs = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader);
+        var out = new ArrayList<PepEntry>();
+        var seen = new HashMap<String, String>();
+        for (var r : recs) {
+            String name = pick(r, "name", "full_name", "caption", "person.name");
+            if (name == null || name.isBlank())
+                continue;
+            String country = pick(r, "country", "country_name", "countries");
+            String role = pick(r, "position", "role", "function");
+            String dataset = pick(r, "dataset", "source", "publisher");
+            String uid = pick(r, "id", "entity_id", "os_id");
+            out.add(new PepEntry(name.trim(), ConditionalFetcher.shared(seen, country),
+                    ConditionalFetcher.shared(seen, role), ConditionalFetcher.shared(seen, dataset), orEmpty(uid),
+                    aliases(pick(r, "aliases", "alias"))));
+        }
+        return out;
+    }
+
+    // OpenSanctions lists every other name in one ";"-separated column
+    private static List<String> aliases(String raw) {
+        if (raw == null)
             return List.of();
+        var out = new ArrayList<String>();
+        for (String a : raw.split(";")) {
+            if (!a.isBlank())
+                out.add(a.trim());
         }
+        return out;
     }
 
     private static String pick(CSVRecord r, String... keys) {
@@ -1,9 +1,20 @@
 package nz.compliscan.api.refdata.model;
 
+import java.util.List;
+
 public record PepEntry(
         String name,
         String country, // if present
         String role, // position/office if present
         String source, // dataset source id
-        String uid) {
+        String uid,
+        List<String> aliases // other names the person is listed under
+) {
+    public PepEntry {
+        aliases = aliases == null ? List.of() : List.copyOf(aliases);
+    }
+
+    public PepEntry(String name, String country, String role, String source, String uid) {
+        this(name, country, role, source, uid, List.of());
+    }
 }
@@ -2,44 +2,33 @@ package nz.compliscan.api.refdata;
 
 import nz.compliscan.api.refdata.model.*;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Holds the current {@link ScreeningSnapshot}. Reloads publish a complete
+ * snapshot with a single atomic swap, so readers never take a lock and a
+ * reader that grabs the snapshot once sees both lists from the same load.
+ */
 public class RefdataCache {
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private List<SanctionEntry> ofac = List.of();
-    private List<PepEntry> peps = List.of();
-    private volatile long lastLoadedEpochMs = 0L;
+    private final AtomicReference<ScreeningSnapshot> current = new AtomicReference<>(ScreeningSnapshot.EMPTY);
 
-    public void replace(List<SanctionEntry> ofac, List<PepEntry> peps) {
-        lock.writeLock().lock();
-        try {
-            this.ofac = List.copyOf(ofac);
-            this.peps = List.copyOf(peps);
-            this.lastLoadedEpochMs = System.currentTimeMillis();
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public void publish(ScreeningSnapshot snapshot) {
+        current.set(Objects.requireNonNull(snapshot));
+    }
+
+    public ScreeningSnapshot getSnapshot() {
+        return current.get();
     }
 
     public List<SanctionEntry> getOfac() {
-        lock.readLock().lock();
-        try {
-            return ofac;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return current.get().ofacEntries();
     }
 
     public List<PepEntry> getPeps() {
-        lock.readLock().lock();
-        try {
-            return peps;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return current.get().pepEntries();
     }
 
     public long getLastLoadedEpochMs() {
-        return lastLoadedEpochMs;
+        return current.get().loadedAtMs();
     }
 }
@@ -1,10 +1,24 @@
 package nz.compliscan.api.refdata.model;
 
+import java.util.List;
+
 public record SanctionEntry(
         String source, // "OFAC:SDN" or "OFAC:Consolidated"
         String name,
         String program, // optional
         String type, // e.g. "individual", "entity" (if available)
-        String uid // unique id if present
+        String uid, // unique id if present
+        List<String> aliases // alternate names from alt.csv / cons_alt.csv
 ) {
+    public SanctionEntry {
+        aliases = aliases == null ? List.of() : List.copyOf(aliases);
+    }
+
+    public SanctionEntry(String source, String name, String program, String type, String uid) {
+        this(source, name, program, type, uid, List.of());
+    }
+
+    public SanctionEntry withAliases(List<String> aliases) {
+        return new SanctionEntry(source, name, program, type, uid, aliases);
+    }
 }
@@ -0,0 +1,155 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Per attribute value, the set of live entries of one {@link ScreeningIndex}
+ * having it: country, entity type, sanctions program and source list, keyed
+ * lower-cased. Screening filters intersect these before any candidate is
+ * scored.
+ *
+ * A delta only rebuilds the sets of the values its removed and appended
+ * entries have; the rest are shared with the previous index, whose smaller
+ * universe they still fit, since no appended entry joins them.
+ */
+final class AttributeIndex {
+    enum Attribute {
+        COUNTRY, TYPE, PROGRAM, SOURCE
+    }
+
+    private final EnumMap<Attribute, Map<String, OrdinalSet>> sets;
+
+    AttributeIndex(EntryColumns columns, BitSet removed) {
+        int n = columns.size();
+        var ords = new EnumMap<Attribute, Map<String, int[]>>(Attribute.class);
+        var counts = new EnumMap<Attribute, Map<String, Integer>>(Attribute.class);
+        for (var a : Attribute.values()) {
+            ords.put(a, new HashMap<>());
+            counts.put(a, new HashMap<>());
+        }
+        // ordinals are visited in order, so every list comes out ascending
+        for (int ord = 0; ord < n; ord++) {
+            if (removed.get(ord))
+                continue;
+            int o = ord;
+            forEachValue(columns, ord, (a, value) -> add(ords, counts, a, value, o));
+        }
+        this.sets = new EnumMap<>(Attribute.class);
+        for (var a : Attribute.values()) {
+            var out = new HashMap<String, OrdinalSet>();
+            for (var e : ords.get(a).entrySet())
+                out.put(e.getKey(), OrdinalSet.of(e.getValue(), counts.get(a).get(e.getKey()), n));
+            sets.put(a, Map.copyOf(out));
+        }
+    }
+
+    private AttributeIndex(EnumMap<Attribute, Map<String, OrdinalSet>> sets) {
+        this.sets = sets;
+    }
+
+    /**
+     * The index after a delta removed the live entries {@code removed} and
+     * appended {@code [firstAdded, columns.size())}: only the sets of values
+     * those entries have are rebuilt, against {@code nextRemoved}.
+     */
+    AttributeIndex withChanges(EntryColumns columns, int[] removed, BitSet nextRemoved, int firstAdded) {
+        var touched = new EnumMap<Attribute, Map<String, List<Integer>>>(Attribute.class);
+        for (var a : Attribute.values())
+            touched.put(a, new HashMap<>());
+        for (int ord : removed)
+            forEachValue(columns, ord, (a, value) -> touched.get(a).putIfAbsent(value, new ArrayList<>()));
+        for (int ord = firstAdded; ord < columns.size(); ord++) {
+            int o = ord;
+            forEachValue(columns, ord,
+                    (a, value) -> touched.get(a).computeIfAbsent(value, k -> new ArrayList<>()).add(o));
+        }
+
+        var next = new EnumMap<Attribute, Map<String, OrdinalSet>>(Attribute.class);
+        for (var a : Attribute.values()) {
+            if (touched.get(a).isEmpty()) {
+                next.put(a, sets.get(a));
+                continue;
+            }
+            var out = new HashMap<>(sets.get(a));
+            for (var t : touched.get(a).entrySet()) {
+                var old = out.get(t.getKey());
+                int[] members = old == null ? Postings.EMPTY : old.toArray();
+                var added = t.getValue();
+                int[] ords = new int[members.length + added.size()];
+                int n = 0;
+                for (int ord : members) {
+                    if (!nextRemoved.get(ord))
+                        ords[n++] = ord;
+                }
+                // appended ordinals are above every old member, so the list stays ascending
+                for (int ord : added)
+                    ords[n++] = ord;
+                if (n == 0)
+                    out.remove(t.getKey());
+                else
+                    out.put(t.getKey(), OrdinalSet.of(ords, n, columns.size()));
+            }
+            next.put(a, Map.copyOf(out));
+        }
+        return new AttributeIndex(next);
+    }
+
+    // each non-empty value entry ord has, per attribute
+    private static void forEachValue(EntryColumns columns, int ord, BiConsumer<Attribute, String> action) {
+        BiConsumer<Attribute, String> nonEmpty = (a, value) -> {
+            if (value != null && !value.isEmpty())
+                action.accept(a, value);
+        };
+        for (String c : columns.countries(ord))
+            nonEmpty.accept(Attribute.COUNTRY, c);
+        nonEmpty.accept(Attribute.TYPE, columns.type(ord));
+        for (String p : columns.programs(ord))
+            nonEmpty.accept(Attribute.PROGRAM, p);
+        nonEmpty.accept(Attribute.SOURCE, columns.source(ord).toLowerCase(Locale.ROOT));
+    }
+
+    private static void add(Map<Attribute, Map<String, int[]>> ords, Map<Attribute, Map<String, Integer>> counts,
+            Attribute a, String value, int ord) {
+        int at = counts.get(a).merge(value, 1, Integer::sum) - 1;
+        int[] list = ords.get(a).get(value);
+        if (list == null || at == list.length) {
+            list = list == null ? new int[8] : Arrays.copyOf(list, list.length * 2);
+            ords.get(a).put(value, list);
+        }
+        list[at] = ord;
+    }
+
+    /** Writes every set for {@link SnapshotFile}, as {@link #read} takes them back. */
+    void write(SnapshotFile.Out out) throws IOException {
+        for (var a : Attribute.values()) {
+            out.data.writeInt(sets.get(a).size());
+            for (var e : sets.get(a).entrySet()) {
+                out.str(e.getKey());
+                e.getValue().write(out);
+            }
+        }
+    }
+
+    static AttributeIndex read(SnapshotFile.In in) {
+        var sets = new EnumMap<Attribute, Map<String, OrdinalSet>>(Attribute.class);
+        for (var a : Attribute.values()) {
+            var values = new HashMap<String, OrdinalSet>();
+            for (int i = 0, n = in.buf.getInt(); i < n; i++)
+                values.put(in.str(), OrdinalSet.read(in));
+            sets.put(a, Map.copyOf(values));
+        }
+        return new AttributeIndex(sets);
+    }
+
+    /** Whether any live entry has a value for {@code a}; a list that never does is not narrowed by it. */
+    boolean carries(Attribute a) {
+        return !sets.get(a).isEmpty();
+    }
+
+    /** Live entries whose {@code a} is (or includes) the lower-cased {@code value}; null if none. */
+    OrdinalSet get(Attribute a, String value) {
+        return sets.get(a).get(value);
+    }
+}
@@ -0,0 +1,155 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Negative check run before one list is screened: an upper bound on the
+ * blended score any of its entries can reach for an input, from the
+ * lengths of its names, a Bloom filter over its tokens and the set of
+ * trigrams its names contain. Below the threshold, no entry can be a hit
+ * and the list need not be scored at all, which is the common case for
+ * clean customers.
+ *
+ * The bound never undercuts a real score:
+ * <ul>
+ * <li>the similarity is at most {@link NameScorer#lengthBound} for the
+ * input's length and the name's, which only falls as the two move apart,
+ * so the list's name lengths nearest the input's on either side give the
+ * bound over all of them;
+ * <li>the token overlap, plain or IDF-weighted, is at most the share of
+ * input tokens the entry has (a token the list lacks weighs at least as
+ * much as any it has), and a token can only be in an entry if the list's
+ * Bloom filter has it and some name contains every trigram of
+ * {@code " token "}. Bloom filters only err towards "may have it".
+ * </ul>
+ *
+ * A delta derives its check from the previous one plus the appended
+ * entries ({@link #withAdded}); the bits of removed entries stay set, which
+ * only errs towards "may match" as well, until the next full rebuild.
+ */
+final class CleanNameCheck {
+    private static final int HASHES = 3;
+    private static final int BITS_PER_TOKEN = 10; // about 1% false positives
+
+    private final long[] bloom;
+    private final int mask;
+    private final BitSet lengths; // normalized name lengths of live entries, and maybe of removed ones
+    private final BitSet grams; // trigrams of the same names
+
+    CleanNameCheck(EntryColumns columns, BitSet removed, Collection<String> tokens) {
+        int bits = Integer.highestOneBit(Math.max(64, tokens.size() * BITS_PER_TOKEN - 1)) << 1;
+        this.bloom = new long[bits >>> 6];
+        this.mask = bits - 1;
+        tokens.forEach(this::addToken);
+        this.lengths = new BitSet();
+        this.grams = new BitSet(Trigrams.GRAMS);
+        for (int ord = 0; ord < columns.size(); ord++) {
+            if (!removed.get(ord))
+                addNames(columns, ord);
+        }
+    }
+
+    private CleanNameCheck(CleanNameCheck prev) {
+        this.bloom = prev.bloom.clone();
+        this.mask = prev.mask;
+        this.lengths = (BitSet) prev.lengths.clone();
+        this.grams = (BitSet) prev.grams.clone();
+    }
+
+    /**
+     * This check plus the entries {@code [from, columns.size())}. The Bloom
+     * filter keeps its size, so its false positive rate creeps up with the
+     * tokens deltas add until the next rebuild.
+     */
+    CleanNameCheck withAdded(EntryColumns columns, int from) {
+        if (from == columns.size())
+            return this;
+        var next = new CleanNameCheck(this);
+        for (int ord = from; ord < columns.size(); ord++) {
+            columns.entryTokens(ord).forEach(next::addToken);
+            next.addNames(columns, ord);
+        }
+        return next;
+    }
+
+    private void addToken(String token) {
+        long h = LongKeyPostings.hash(token);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = bit(h, i);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private void addNames(EntryColumns columns, int ord) {
+        for (int name = columns.namesFrom(ord); name < columns.namesTo(ord); name++)
+            lengths.set(columns.normLength(name));
+        for (int g : columns.grams(ord))
+            grams.set(g);
+    }
+
+    private CleanNameCheck(long[] bloom, BitSet lengths, BitSet grams) {
+        if (Integer.bitCount(bloom.length) != 1)
+            throw new IllegalArgumentException("not a Bloom filter size: " + bloom.length);
+        this.bloom = bloom;
+        this.mask = (bloom.length << 6) - 1;
+        this.lengths = lengths;
+        this.grams = grams;
+    }
+
+    /** Writes the filter and bit sets for {@link SnapshotFile}, as {@link #read} takes them back. */
+    void write(SnapshotFile.Out out) throws IOException {
+        for (long[] words : List.of(bloom, lengths.toLongArray(), grams.toLongArray())) {
+            out.data.writeInt(words.length);
+            out.longs(words, words.length);
+        }
+    }
+
+    static CleanNameCheck read(SnapshotFile.In in) {
+        long[] bloom = in.longs(in.buf.getInt());
+        var lengths = BitSet.valueOf(in.longs(in.buf.getInt()));
+        return new CleanNameCheck(bloom, lengths, BitSet.valueOf(in.longs(in.buf.getInt())));
+    }
+
+    /** Highest blended score any live entry can have for {@code norm}, whose distinct tokens are {@code tA}. */
+    double maxScore(String norm, Set<String> tA, NameScorer scorer) {
+        int len = norm.length();
+        int below = lengths.previousSetBit(len), above = lengths.nextSetBit(len);
+        if (below < 0 && above < 0)
+            return 0;
+        double similarity = Math.max(below < 0 ? 0 : scorer.lengthBound(len, below),
+                above < 0 ? 0 : scorer.lengthBound(len, above));
+
+        int present = 0;
+        for (String t : tA) {
+            if (mayContain(t))
+                present++;
+        }
+        double overlap = tA.isEmpty() ? 0 : present / (double) tA.size();
+        return similarity * (1.0 - ScreeningService.TOKEN_WEIGHT) + overlap * ScreeningService.TOKEN_WEIGHT;
+    }
+
+    /** False only if no live entry has {@code token}. */
+    boolean mayContain(String token) {
+        long h = LongKeyPostings.hash(token);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = bit(h, i);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        for (int g : Trigrams.grams(token)) {
+            if (!grams.get(g))
+                return false;
+        }
+        return true;
+    }
+
+    // double hashing: the i-th probe of a 64-bit hash
+    private int bit(long h, int i) {
+        int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+        return (h1 + i * h2) & mask;
+    }
+}
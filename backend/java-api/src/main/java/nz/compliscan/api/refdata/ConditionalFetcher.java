@@ -0,0 +1,164 @@
+package nz.compliscan.api.refdata;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conditional, streaming GET of refdata CSVs.
+ *
+ * Remembers, per URL, the ETag and Last-Modified of the last good response,
+ * a SHA-256 of its body and the rows parsed from it. The next request sends
+ * those validators back; a 304 returns the remembered rows without reading
+ * a body.
+ *
+ * A body is read with at most {@link #DEMAND} network buffers in flight and
+ * parsed as it arrives, hashing and counting bytes on the way, so no copy of
+ * the whole file is held. A body that hashes the same as the last one has
+ * been parsed by then, but its rows are dropped for the remembered ones, so
+ * nothing downstream sees a change.
+ *
+ * A failed request, a body shorter than its Content-Length or a CSV error is
+ * reported as {@code FAILED} with the reason, and the last good rows (if
+ * any) are returned instead of a partial or empty list.
+ */
+final class ConditionalFetcher<T> {
+    static final int DEMAND = 16;
+
+    interface Parser<T> {
+        List<T> parse(Reader in, String source) throws IOException;
+    }
+
+    /**
+     * For parsers: one copy of each value of a column such as a program,
+     * type or country that repeats across thousands of rows; null as "".
+     */
+    static String shared(Map<String, String> seen, String s) {
+        return seen.computeIfAbsent(s == null ? "" : s, v -> v);
+    }
+
+    private record Last<T>(String etag, String lastModified, String sha256, List<T> rows) {
+    }
+
+    record Result<T>(List<T> rows, SourceFetch report) {
+    }
+
+    private final WebClient http;
+    private final Parser<T> parser;
+    private final Map<String, Last<T>> last = new ConcurrentHashMap<>();
+
+    ConditionalFetcher(WebClient http, Parser<T> parser) {
+        this.http = http;
+        this.parser = parser;
+    }
+
+    /**
+     * Starts {@code url} from rows restored elsewhere (a snapshot on disk):
+     * they are what a failed fetch falls back to. No validators are known, so
+     * the next fetch is unconditional.
+     */
+    void seed(String url, List<T> rows) {
+        last.putIfAbsent(url, new Last<>(null, null, null, List.copyOf(rows)));
+    }
+
+    /**
+     * Fetches {@code url}; with {@code force} set, no validators are sent and
+     * the parsed rows are used even if the body hashes the same as last time.
+     */
+    Result<T> fetch(String url, String source, boolean force) {
+        long start = System.nanoTime();
+        var prev = last.get(url);
+        List<T> kept = prev == null ? List.of() : prev.rows();
+        long[] bytes = { 0 };
+        try {
+            WebClient.RequestHeadersSpec<?> req = http.get().uri(url);
+            if (prev != null && !force) {
+                if (prev.etag() != null)
+                    req = req.header(HttpHeaders.IF_NONE_MATCH, prev.etag());
+                if (prev.lastModified() != null)
+                    req = req.header(HttpHeaders.IF_MODIFIED_SINCE, prev.lastModified());
+            }
+            var resp = req.retrieve().toEntityFlux(DataBuffer.class).block();
+            if (resp == null)
+                throw new IOException("no response");
+            if (resp.getStatusCode().value() == 304) {
+                if (prev == null)
+                    throw new IOException("304 without a previous response");
+                return new Result<>(kept, report(start, source, url, SourceFetch.Status.NOT_MODIFIED, kept, 0, null));
+            }
+
+            var headers = resp.getHeaders();
+            long expected = headers.getContentLength();
+            var digest = MessageDigest.getInstance("SHA-256");
+            List<T> rows;
+            try (var body = new DigestInputStream(new CountingInputStream(
+                    DataBufferUtils.subscriberInputStream(resp.getBody(), DEMAND), bytes), digest)) {
+                rows = parser.parse(new InputStreamReader(body, StandardCharsets.UTF_8), source);
+                body.transferTo(OutputStream.nullOutputStream()); // hash whatever the parser left unread
+            }
+            if (expected >= 0 && bytes[0] != expected)
+                throw new IOException("truncated body: " + bytes[0] + " of " + expected + " bytes");
+
+            String sha = HexFormat.of().formatHex(digest.digest());
+            String etag = headers.getFirst(HttpHeaders.ETAG);
+            String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            if (prev != null && !force && sha.equals(prev.sha256())) {
+                last.put(url, new Last<>(etag, lastModified, sha, kept));
+                return new Result<>(kept,
+                        report(start, source, url, SourceFetch.Status.UNCHANGED, kept, bytes[0], null));
+            }
+
+            rows = Collections.unmodifiableList(rows);
+            last.put(url, new Last<>(etag, lastModified, sha, rows));
+            return new Result<>(rows, report(start, source, url, SourceFetch.Status.FETCHED, rows, bytes[0], null));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (Exception e) {
+            String reason = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return new Result<>(kept, report(start, source, url, SourceFetch.Status.FAILED, kept, bytes[0], reason));
+        }
+    }
+
+    private static SourceFetch report(long start, String source, String url, SourceFetch.Status status, List<?> rows,
+            long bytes, String error) {
+        return new SourceFetch(source, url, status, rows.size(), bytes, (System.nanoTime() - start) / 1_000_000,
+                error);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long[] count;
+
+        CountingInputStream(InputStream in, long[] count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count[0]++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0)
+                count[0] += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * Levenshtein and optimal string alignment (Levenshtein plus adjacent
+ * transpositions, each substring edited at most once) distances on
+ * {@code char[]} ranges, computed with Myers' bit-parallel algorithm in
+ * Hyyrö's formulation: one DP column is advanced per text character, 64
+ * pattern rows per {@code long}, with carries between words for patterns
+ * longer than 64.
+ *
+ * The shorter string is the pattern. Its match masks are built for ASCII,
+ * which covers every normalized name; a pattern with other characters falls
+ * back to the plain dynamic program. Masks and column words live in
+ * per-thread scratch arrays, so a call allocates nothing.
+ *
+ * Given a maximum distance, a call stops as soon as the remaining columns
+ * can no longer bring the distance back under it.
+ */
+final class EditDistance {
+    private static final int ASCII = 128;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private EditDistance() {
+    }
+
+    static int levenshtein(char[] a, char[] b) {
+        return distance(a, 0, a.length, b, 0, b.length, false, Integer.MAX_VALUE - 1);
+    }
+
+    static int osa(char[] a, char[] b) {
+        return distance(a, 0, a.length, b, 0, b.length, true, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * {@code 1 - distance / max(aLen, bLen)}, or 1 for two empty ranges. As
+     * with {@link JaroWinkler}, a result below {@code minScore} may be
+     * returned as 0 instead.
+     */
+    static double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, boolean transpositions,
+            double minScore) {
+        int len = Math.max(aLen, bLen);
+        if (len == 0)
+            return 1d;
+        int max = minScore > 0d ? (int) Math.floor((1d - minScore) * len + 1e-9) : len;
+        if (Math.abs(aLen - bLen) > max)
+            return 0d;
+        int d = distance(a, aOff, aLen, b, bOff, bLen, transpositions, max);
+        return d > max ? 0d : 1d - d / (double) len;
+    }
+
+    /** Best {@link #similarity} any two ranges of these lengths can reach: the distance is at least their difference. */
+    static double lengthBound(int aLen, int bLen) {
+        int len = Math.max(aLen, bLen);
+        return len == 0 ? 1d : Math.min(aLen, bLen) / (double) len;
+    }
+
+    /** Edit distance of the two ranges, or any value above {@code max} once it is certain to exceed it. */
+    static int distance(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, boolean transpositions,
+            int max) {
+        final char[] p, t;
+        final int pOff, m, tOff, n;
+        if (aLen <= bLen) {
+            p = a; pOff = aOff; m = aLen;
+            t = b; tOff = bOff; n = bLen;
+        } else {
+            p = b; pOff = bOff; m = bLen;
+            t = a; tOff = aOff; n = aLen;
+        }
+        if (m == 0)
+            return n;
+        for (int i = 0; i < m; i++) {
+            if (p[pOff + i] >= ASCII)
+                return dynamic(p, pOff, m, t, tOff, n, transpositions);
+        }
+
+        int blocks = (m + 63) >>> 6;
+        Scratch s = SCRATCH.get();
+        s.ensure(blocks);
+        long[] peq = s.peq, vp = s.vp, vn = s.vn, d0 = s.d0;
+        for (int i = 0; i < m; i++)
+            peq[p[pOff + i] * blocks + (i >>> 6)] |= 1L << i;
+        for (int w = 0; w < blocks; w++) {
+            vp[w] = -1L;
+            vn[w] = 0L;
+            d0[w] = 0L;
+        }
+
+        long lastBit = 1L << (m - 1);
+        int score = m;
+        int prev = -1; // mask offset of the previous text character, -1 if none or not ASCII
+        for (int j = 0; j < n; j++) {
+            char c = t[tOff + j];
+            int at = c < ASCII ? c * blocks : -1;
+            int hin = 1; // row 0 grows by one per column
+            long trCarry = 0L;
+            for (int w = 0; w < blocks; w++) {
+                long eq = at < 0 ? 0L : peq[at + w];
+                long pv = vp[w], mv = vn[w];
+                long xv = eq | mv;
+                long eqh = hin < 0 ? eq | 1L : eq;
+                long xh = (((eqh & pv) + pv) ^ pv) | eqh;
+                if (transpositions) {
+                    // a transposition ends where the diagonal was not zero one column back
+                    long swapped = ~d0[w] & eq;
+                    long tr = ((swapped << 1) | trCarry) & (prev < 0 ? 0L : peq[prev + w]);
+                    trCarry = swapped >>> 63;
+                    xh |= tr;
+                    xv |= tr;
+                    d0[w] = xh | xv;
+                }
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                int hout;
+                if (w == blocks - 1) {
+                    hout = 0;
+                    if ((ph & lastBit) != 0)
+                        score++;
+                    else if ((mh & lastBit) != 0)
+                        score--;
+                } else {
+                    hout = ph < 0 ? 1 : mh < 0 ? -1 : 0;
+                }
+                ph <<= 1;
+                mh <<= 1;
+                if (hin < 0)
+                    mh |= 1L;
+                else if (hin > 0)
+                    ph |= 1L;
+                vp[w] = mh | ~(xv | ph);
+                vn[w] = ph & xv;
+                hin = hout;
+            }
+            prev = at;
+            // the last row drops by at most one per remaining column
+            if (score - (n - j - 1) > max) {
+                score = max + 1;
+                break;
+            }
+        }
+
+        for (int i = 0; i < m; i++)
+            peq[p[pOff + i] * blocks + (i >>> 6)] = 0L;
+        return score;
+    }
+
+    // two-row dynamic program (three with transpositions), for non-ASCII patterns
+    private static int dynamic(char[] p, int pOff, int m, char[] t, int tOff, int n, boolean transpositions) {
+        int[] before = new int[m + 1], above = new int[m + 1], row = new int[m + 1];
+        for (int i = 0; i <= m; i++)
+            above[i] = i;
+        for (int j = 1; j <= n; j++) {
+            row[0] = j;
+            char tc = t[tOff + j - 1];
+            for (int i = 1; i <= m; i++) {
+                char pc = p[pOff + i - 1];
+                int cost = pc == tc ? 0 : 1;
+                int d = Math.min(Math.min(row[i - 1] + 1, above[i] + 1), above[i - 1] + cost);
+                if (transpositions && i > 1 && j > 1 && pc == t[tOff + j - 2] && p[pOff + i - 2] == tc)
+                    d = Math.min(d, before[i - 2] + 1);
+                row[i] = d;
+            }
+            int[] tmp = before;
+            before = above;
+            above = row;
+            row = tmp;
+        }
+        return above[m];
+    }
+
+    private static final class Scratch {
+        long[] peq = new long[ASCII];
+        long[] vp = new long[1], vn = new long[1], d0 = new long[1];
+
+        void ensure(int blocks) {
+            if (vp.length >= blocks)
+                return;
+            // masks are indexed by char * blocks, so they are rebuilt for the new width
+            peq = new long[ASCII * blocks];
+            vp = new long[blocks];
+            vn = new long[blocks];
+            d0 = new long[blocks];
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Column-wise storage of the entries of one {@link ScreeningIndex}.
+ *
+ * Each entry has one or more names: its primary name followed by its
+ * aliases. Names are numbered consecutively, so entry {@code ord} owns the
+ * names {@code [namesFrom(ord), namesTo(ord))}, the first being the primary
+ * one. Scoring only reads normalized names and tokens, so those are packed:
+ * every name's norm sits back to back in one shared {@code char[]}
+ * addressed by offsets, and every name's distinct tokens, as ascending ids
+ * in the columns' {@link TokenDictionary}, in one {@code int[]}, also
+ * addressed by offsets. A scan walks flat arrays instead of chasing an object, a
+ * {@code char[]} and a set of strings per name.
+ *
+ * Source, extra, country set, type and program set repeat across most of a
+ * list and are stored
+ * as int codes into small per-column dictionaries. Display name and uid stay
+ * references to the strings of the fetched rows, which the snapshot keeps
+ * for diffing anyway, so they cost one reference each.
+ *
+ * Columns are appendable: a {@link Builder} started from a base writes
+ * the new entries past the base's end in the base's own arrays, which keep
+ * a reserve of {@link ScreeningIndex#COMPACT_RATIO} for that, and the base
+ * never reads that far. So a delta shares the arrays of the columns it
+ * extends and only writes its own entries. Only the first builder started
+ * from a base appends in place; any later one, or one that outgrows the
+ * reserve, copies.
+ *
+ * {@link ScreeningSnapshot.Entry} objects are only materialized by
+ * {@link #entry}, for delta bookkeeping and the snapshot file; Match
+ * building reads the columns directly.
+ */
+final class EntryColumns {
+    static final EntryColumns EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final Codes codes;
+    private final List<String> sources;
+    private final int[] source;
+    private final List<String> extras;
+    private final int[] extra;
+    private final List<Set<String>> countrySets;
+    private final int[] countries;
+    private final List<String> types;
+    private final int[] type;
+    private final List<Set<String>> programSets;
+    private final int[] programs;
+    private final String[] uid;
+    private final String[] display;
+    private final int[] nameOffsets; // size + 1
+    private final String[] aliases; // per name; null for primary names
+    private final char[] norms;
+    private final int[] normOffsets; // names + 1
+    private final int[] tokens; // token ids, ascending per name
+    private final int[] tokenOffsets; // names + 1
+    private final TokenDictionary dictionary;
+    private final AtomicBoolean extended = new AtomicBoolean(); // a builder appends past size
+
+    // the arrays are the builder's, past size too; see Builder#build
+    private EntryColumns(Builder b) {
+        this.size = b.size;
+        this.codes = b.codes;
+        this.sources = b.codes.sources.values();
+        this.source = b.source;
+        this.extras = b.codes.extras.values();
+        this.extra = b.extra;
+        this.countrySets = b.codes.countrySets.values();
+        this.countries = b.countries;
+        this.types = b.codes.types.values();
+        this.type = b.type;
+        this.programSets = b.codes.programSets.values();
+        this.programs = b.programs;
+        this.uid = b.uid;
+        this.display = b.display;
+        this.nameOffsets = b.nameOffsets;
+        this.aliases = b.aliases;
+        this.norms = b.norms;
+        this.normOffsets = b.normOffsets;
+        this.tokens = b.tokens;
+        this.tokenOffsets = b.tokenOffsets;
+        this.dictionary = b.dictionary;
+    }
+
+    /** Number of stored entries, including any the owning index has since removed. */
+    int size() {
+        return size;
+    }
+
+    String source(int ord) {
+        return sources.get(source[ord]);
+    }
+
+    String uid(int ord) {
+        return uid[ord];
+    }
+
+    String display(int ord) {
+        return display[ord];
+    }
+
+    String extra(int ord) {
+        return extras.get(extra[ord]);
+    }
+
+    Set<String> countries(int ord) {
+        return countrySets.get(countries[ord]);
+    }
+
+    String type(int ord) {
+        return types.get(type[ord]);
+    }
+
+    Set<String> programs(int ord) {
+        return programSets.get(programs[ord]);
+    }
+
+    /** First name of entry {@code ord}: its primary name. */
+    int namesFrom(int ord) {
+        return nameOffsets[ord];
+    }
+
+    int namesTo(int ord) {
+        return nameOffsets[ord + 1];
+    }
+
+    /** Display form of alias {@code name}, or {@code null} if it is an entry's primary name. */
+    String alias(int name) {
+        return aliases[name];
+    }
+
+    /**
+     * The shared buffer holding every normalized name; see {@link #normStart}
+     * and {@link #normLength}. It may run past the last name.
+     */
+    char[] norms() {
+        return norms;
+    }
+
+    int normStart(int name) {
+        return normOffsets[name];
+    }
+
+    int normLength(int name) {
+        return normOffsets[name + 1] - normOffsets[name];
+    }
+
+    /**
+     * The shared token id array; {@code name} owns the ascending
+     * {@code [tokensFrom(name), tokensTo(name))}. It may run past the last name.
+     */
+    int[] tokens() {
+        return tokens;
+    }
+
+    int tokensFrom(int name) {
+        return tokenOffsets[name];
+    }
+
+    int tokensTo(int name) {
+        return tokenOffsets[name + 1];
+    }
+
+    /** The dictionary of the token ids; shared with the columns of later deltas. */
+    TokenDictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Distinct tokens over all names of entry {@code ord}. */
+    Collection<String> entryTokens(int ord) {
+        int from = tokenOffsets[nameOffsets[ord]], to = tokenOffsets[nameOffsets[ord + 1]];
+        var all = new String[to - from];
+        for (int i = from; i < to; i++)
+            all[i - from] = dictionary.token(tokens[i]);
+        return namesTo(ord) - namesFrom(ord) == 1 ? Arrays.asList(all) : new LinkedHashSet<>(Arrays.asList(all));
+    }
+
+    /** Distinct trigram ids over all names of entry {@code ord}. */
+    int[] grams(int ord) {
+        int from = namesFrom(ord), to = namesTo(ord);
+        if (to - from == 1)
+            return Trigrams.grams(norms, normStart(from), normLength(from));
+        int[][] each = new int[to - from][];
+        int total = 0;
+        for (int n = from; n < to; n++) {
+            each[n - from] = Trigrams.grams(norms, normStart(n), normLength(n));
+            total += each[n - from].length;
+        }
+        int[] all = new int[total];
+        int at = 0;
+        for (int[] g : each) {
+            System.arraycopy(g, 0, all, at, g.length);
+            at += g.length;
+        }
+        return Postings.sortedDistinct(all);
+    }
+
+    /** A standalone copy of entry {@code ord}. */
+    ScreeningSnapshot.Entry entry(int ord) {
+        int primary = namesFrom(ord);
+        var alts = new ArrayList<ScreeningSnapshot.Alias>(namesTo(ord) - primary - 1);
+        for (int n = primary + 1; n < namesTo(ord); n++)
+            alts.add(new ScreeningSnapshot.Alias(aliases[n], norm(n), tokenSet(n)));
+        return new ScreeningSnapshot.Entry(source(ord), uid(ord), display(ord), extra(ord), norm(primary),
+                tokenSet(primary), countries(ord), type(ord), programs(ord), List.copyOf(alts));
+    }
+
+    private char[] norm(int name) {
+        return Arrays.copyOfRange(norms, normOffsets[name], normOffsets[name + 1]);
+    }
+
+    private Set<String> tokenSet(int name) {
+        var out = new String[tokenOffsets[name + 1] - tokenOffsets[name]];
+        for (int i = 0; i < out.length; i++)
+            out[i] = dictionary.token(tokens[tokenOffsets[name] + i]);
+        return Set.of(out);
+    }
+
+    /** Writes every column for {@link SnapshotFile}, as {@link #read} takes them back. */
+    void write(SnapshotFile.Out out) throws IOException {
+        int names = nameOffsets[size];
+        out.data.writeInt(size);
+        out.data.writeInt(names);
+        out.data.writeInt(normOffsets[names]);
+        out.data.writeInt(tokenOffsets[names]);
+        out.strs(dictionary.tokens(), true);
+        out.strs(sources, true);
+        out.strs(extras, true);
+        out.strs(types, true);
+        for (var sets : List.of(countrySets, programSets)) {
+            out.data.writeInt(sets.size());
+            for (var set : sets)
+                out.strs(set, true);
+        }
+        for (int[] column : List.of(source, extra, countries, type, programs))
+            out.ints(column, size);
+        out.strs(uid, size);
+        out.strs(display, size);
+        out.ints(nameOffsets, size + 1);
+        out.strs(aliases, names);
+        out.ints(normOffsets, names + 1);
+        out.chars(norms, normOffsets[names]);
+        out.ints(tokenOffsets, names + 1);
+        out.ints(tokens, tokenOffsets[names]);
+    }
+
+    /** Columns as {@link #write} stored them, with the usual reserve to append to. */
+    static EntryColumns read(SnapshotFile.In in) {
+        int size = in.buf.getInt(), names = in.buf.getInt();
+        int chars = in.buf.getInt(), tokenCount = in.buf.getInt();
+        var dictionary = new TokenDictionary();
+        in.strs().forEach(dictionary::intern);
+        var codes = new Codes();
+        in.strs().forEach(codes.sources::code);
+        in.strs().forEach(codes.extras::code);
+        in.strs().forEach(codes.types::code);
+        for (var sets : List.of(codes.countrySets, codes.programSets)) {
+            for (int i = 0, n = in.buf.getInt(); i < n; i++)
+                sets.code(Set.copyOf(in.strs()));
+        }
+
+        var b = new Builder(dictionary, codes);
+        int entryCap = Builder.reserve(size), nameCap = Builder.reserve(names);
+        b.size = size;
+        b.names = names;
+        b.source = in.ints(size, entryCap);
+        b.extra = in.ints(size, entryCap);
+        b.countries = in.ints(size, entryCap);
+        b.type = in.ints(size, entryCap);
+        b.programs = in.ints(size, entryCap);
+        b.uid = in.strs(size, entryCap);
+        b.display = in.strs(size, entryCap);
+        b.nameOffsets = in.ints(size + 1, entryCap + 1);
+        b.aliases = in.strs(names, nameCap);
+        b.normOffsets = in.ints(names + 1, nameCap + 1);
+        b.norms = in.chars(chars, Builder.reserve(chars));
+        b.tokenOffsets = in.ints(names + 1, nameCap + 1);
+        b.tokens = in.ints(tokenCount, Builder.reserve(tokenCount));
+        return b.build();
+    }
+
+    /**
+     * Appends entries column by column; not thread-safe, and done once
+     * {@link #build} is called. A builder started empty numbers tokens in a
+     * new dictionary, so a full rebuild drops the tokens of entries that are
+     * gone; one started from a base keeps the base's dictionary and ids.
+     */
+    static final class Builder {
+        private final TokenDictionary dictionary;
+        private final Codes codes;
+        private final boolean inPlace; // writing into the arrays of a published base
+        private int size;
+        private int names;
+        private int[] source, extra, countries, type, programs, nameOffsets;
+        private String[] uid, display;
+        private String[] aliases;
+        private char[] norms;
+        private int[] normOffsets;
+        private int[] tokens;
+        private int[] tokenOffsets;
+
+        Builder(int capacity) {
+            this.dictionary = new TokenDictionary();
+            this.codes = new Codes();
+            this.inPlace = false;
+            allocate(capacity);
+        }
+
+        /**
+         * Every entry of {@code base} followed by whatever is added next; base
+         * ordinals are kept. Appends in place in the base's arrays unless
+         * another builder already has.
+         */
+        Builder(EntryColumns base, int extraCapacity) {
+            this.dictionary = base.dictionary;
+            this.inPlace = base.extended.compareAndSet(false, true);
+            if (!inPlace) {
+                this.codes = new Codes();
+                allocate(base.size + extraCapacity);
+                for (int ord = 0; ord < base.size; ord++)
+                    add(base, ord);
+                return;
+            }
+            this.codes = base.codes;
+            size = base.size;
+            names = base.nameOffsets[size];
+            source = base.source;
+            extra = base.extra;
+            countries = base.countries;
+            type = base.type;
+            programs = base.programs;
+            uid = base.uid;
+            display = base.display;
+            nameOffsets = base.nameOffsets;
+            aliases = base.aliases;
+            norms = base.norms;
+            normOffsets = base.normOffsets;
+            tokens = base.tokens;
+            tokenOffsets = base.tokenOffsets;
+        }
+
+        // arrays to be filled in by the caller
+        private Builder(TokenDictionary dictionary, Codes codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+            this.inPlace = false;
+        }
+
+        private void allocate(int capacity) {
+            int n = reserve(capacity);
+            source = new int[n];
+            extra = new int[n];
+            countries = new int[n];
+            type = new int[n];
+            programs = new int[n];
+            uid = new String[n];
+            display = new String[n];
+            nameOffsets = new int[n + 1];
+            aliases = new String[n];
+            norms = new char[n * 16];
+            normOffsets = new int[n + 1];
+            tokens = new int[n * 3];
+            tokenOffsets = new int[n + 1];
+        }
+
+        int size() {
+            return size;
+        }
+
+        Builder add(ScreeningSnapshot.Entry e) {
+            addEntry(e.source(), e.uid(), e.display(), e.extra(), e.countries(), e.type(), e.programs());
+            int[] primary = dictionary.intern(e.tokens());
+            addName(null, e.norm(), 0, e.norm().length, primary, 0, primary.length);
+            for (var a : e.aliases()) {
+                int[] toks = dictionary.intern(a.tokens());
+                addName(a.display(), a.norm(), 0, a.norm().length, toks, 0, toks.length);
+            }
+            return this;
+        }
+
+        /** Copies entry {@code ord} of {@code from}, with all its names, without materializing it. */
+        Builder add(EntryColumns from, int ord) {
+            addEntry(from.source(ord), from.uid(ord), from.display(ord), from.extra(ord), from.countries(ord),
+                    from.type(ord), from.programs(ord));
+            for (int n = from.namesFrom(ord); n < from.namesTo(ord); n++) {
+                if (from.dictionary == dictionary) {
+                    addName(from.aliases[n], from.norms, from.normStart(n), from.normLength(n), from.tokens,
+                            from.tokensFrom(n), from.tokensTo(n));
+                    continue;
+                }
+                // renumber into this builder's dictionary
+                int[] toks = new int[from.tokensTo(n) - from.tokensFrom(n)];
+                for (int i = 0; i < toks.length; i++)
+                    toks[i] = dictionary.intern(from.dictionary.token(from.tokens[from.tokensFrom(n) + i]));
+                Arrays.sort(toks);
+                addName(from.aliases[n], from.norms, from.normStart(n), from.normLength(n), toks, 0, toks.length);
+            }
+            return this;
+        }
+
+        private void addEntry(String src, String id, String name, String ext, Set<String> cs, String t,
+                Set<String> ps) {
+            if (size == source.length) {
+                int n = grow(size, size + 1);
+                source = Arrays.copyOf(source, n);
+                extra = Arrays.copyOf(extra, n);
+                countries = Arrays.copyOf(countries, n);
+                type = Arrays.copyOf(type, n);
+                programs = Arrays.copyOf(programs, n);
+                uid = Arrays.copyOf(uid, n);
+                display = Arrays.copyOf(display, n);
+                nameOffsets = Arrays.copyOf(nameOffsets, n + 1);
+            }
+            source[size] = codes.sources.code(src);
+            extra[size] = codes.extras.code(ext);
+            countries[size] = codes.countrySets.code(cs);
+            type[size] = codes.types.code(t);
+            programs[size] = codes.programSets.code(ps);
+            uid[size] = id;
+            display[size] = name;
+            nameOffsets[size + 1] = nameOffsets[size];
+            size++;
+        }
+
+        // appends a name to the entry added last
+        private void addName(String alias, char[] norm, int normOff, int normLen, int[] toks, int tokFrom,
+                int tokTo) {
+            if (names == aliases.length) {
+                int n = grow(names, names + 1);
+                aliases = Arrays.copyOf(aliases, n);
+                normOffsets = Arrays.copyOf(normOffsets, n + 1);
+                tokenOffsets = Arrays.copyOf(tokenOffsets, n + 1);
+            }
+            aliases[names] = alias;
+
+            int at = normOffsets[names];
+            if (at + normLen > norms.length)
+                norms = Arrays.copyOf(norms, grow(norms.length, at + normLen));
+            System.arraycopy(norm, normOff, norms, at, normLen);
+            normOffsets[names + 1] = at + normLen;
+
+            int tokAt = tokenOffsets[names];
+            int tokLen = tokTo - tokFrom;
+            if (tokAt + tokLen > tokens.length)
+                tokens = Arrays.copyOf(tokens, grow(tokens.length, tokAt + tokLen));
+            System.arraycopy(toks, tokFrom, tokens, tokAt, tokLen);
+            tokenOffsets[names + 1] = tokAt + tokLen;
+
+            names++;
+            nameOffsets[size] = names;
+        }
+
+        // own arrays double and are trimmed at build; shared ones grow straight to the reserve
+        private int grow(int length, int needed) {
+            return inPlace ? reserve(needed) : Math.max(needed, length * 2);
+        }
+
+        /**
+         * The columns over the builder's arrays. Arrays with more room than
+         * the reserve are trimmed to it; a delta appending in place stays
+         * within it and copies nothing.
+         */
+        EntryColumns build() {
+            int used = normOffsets[names], usedTokens = tokenOffsets[names];
+            if (source.length > reserve(size)) {
+                int n = reserve(size);
+                source = Arrays.copyOf(source, n);
+                extra = Arrays.copyOf(extra, n);
+                countries = Arrays.copyOf(countries, n);
+                type = Arrays.copyOf(type, n);
+                programs = Arrays.copyOf(programs, n);
+                uid = Arrays.copyOf(uid, n);
+                display = Arrays.copyOf(display, n);
+                nameOffsets = Arrays.copyOf(nameOffsets, n + 1);
+            }
+            if (aliases.length > reserve(names)) {
+                int n = reserve(names);
+                aliases = Arrays.copyOf(aliases, n);
+                normOffsets = Arrays.copyOf(normOffsets, n + 1);
+                tokenOffsets = Arrays.copyOf(tokenOffsets, n + 1);
+            }
+            if (norms.length > reserve(used))
+                norms = Arrays.copyOf(norms, reserve(used));
+            if (tokens.length > reserve(usedTokens))
+                tokens = Arrays.copyOf(tokens, reserve(usedTokens));
+            return new EntryColumns(this);
+        }
+
+        private static int reserve(int used) {
+            return used + (int) (used * ScreeningIndex.COMPACT_RATIO) + 8;
+        }
+    }
+
+    /** The value dictionaries of one lineage of appendable columns. */
+    private static final class Codes {
+        final Dictionary<String> sources = new Dictionary<>();
+        final Dictionary<String> extras = new Dictionary<>();
+        final Dictionary<Set<String>> countrySets = new Dictionary<>();
+        final Dictionary<String> types = new Dictionary<>();
+        final Dictionary<Set<String>> programSets = new Dictionary<>();
+    }
+
+    /** Value-to-code dictionary of one low-cardinality column. */
+    private static final class Dictionary<T> {
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int code(T value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        List<T> values() {
+            return new ArrayList<>(values);
+        }
+    }
+}
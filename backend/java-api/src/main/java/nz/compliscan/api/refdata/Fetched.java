@@ -0,0 +1,12 @@
+package nz.compliscan.api.refdata;
+
+import java.util.List;
+
+/** Rows of one client's sources, plus how each source was fetched. */
+public record Fetched<T>(List<T> rows, List<SourceFetch> sources) {
+
+    /** False when every source was reused from the previous fetch, so the rows are the same. */
+    public boolean changed() {
+        return sources.stream().anyMatch(SourceFetch::changed);
+    }
+}
@@ -0,0 +1,144 @@
+package nz.compliscan.api.refdata;
+
+import java.util.Arrays;
+
+/**
+ * Jaro-Winkler similarity on {@code char[]} ranges, scored exactly like
+ * commons-text's {@code JaroWinklerSimilarity} (same matching window, half
+ * transpositions, prefix of up to 4 with a 0.1 scaling factor, boost only
+ * above 0.7).
+ *
+ * Match flags live in per-thread scratch arrays that are invalidated by a
+ * generation counter instead of being cleared, so a call allocates nothing.
+ * When a {@code minScore} is given, scoring stops as soon as the length
+ * ratio or the characters still left to match make it unreachable.
+ */
+final class JaroWinkler {
+    private static final double BOOST_THRESHOLD = 0.7d;
+    private static final double SCALING_FACTOR = 0.1d;
+    private static final int MAX_PREFIX = 4;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private JaroWinkler() {
+    }
+
+    static double similarity(char[] a, char[] b) {
+        return similarity(a, 0, a.length, b, 0, b.length, 0d);
+    }
+
+    static double similarity(char[] a, char[] b, double minScore) {
+        return similarity(a, 0, a.length, b, 0, b.length, minScore);
+    }
+
+    /**
+     * Similarity of {@code a[aOff, aOff + aLen)} and {@code b[bOff, bOff + bLen)}.
+     * If the result would be below {@code minScore} the method may return any
+     * value below {@code minScore} (currently 0) instead of the exact score.
+     */
+    static double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, double minScore) {
+        if (aLen == bLen && Arrays.equals(a, aOff, aOff + aLen, b, bOff, bOff + bLen))
+            return 1d;
+
+        // same orientation as commons-text: "max" is the first argument only if strictly longer
+        final char[] max, min;
+        final int maxOff, maxLen, minOff, minLen;
+        if (aLen > bLen) {
+            max = a; maxOff = aOff; maxLen = aLen;
+            min = b; minOff = bOff; minLen = bLen;
+        } else {
+            max = b; maxOff = bOff; maxLen = bLen;
+            min = a; minOff = aOff; minLen = aLen;
+        }
+        if (minLen == 0)
+            return 0d;
+
+        int prefix = 0;
+        for (int i = 0, n = Math.min(MAX_PREFIX, minLen); i < n; i++) {
+            if (a[aOff + i] != b[bOff + i])
+                break;
+            prefix++;
+        }
+
+        boolean bounded = minScore > 0d;
+        if (bounded && upperBound(minLen, aLen, bLen, prefix) < minScore)
+            return 0d;
+
+        Scratch s = SCRATCH.get();
+        int gen = s.next(minLen, maxLen);
+        int[] minFlags = s.minFlags;
+        int[] maxFlags = s.maxFlags;
+
+        int range = Math.max(maxLen / 2 - 1, 0);
+        int matches = 0;
+        for (int mi = 0; mi < minLen; mi++) {
+            char c1 = min[minOff + mi];
+            boolean hit = false;
+            for (int xi = Math.max(mi - range, 0), xn = Math.min(mi + range + 1, maxLen); xi < xn; xi++) {
+                if (maxFlags[xi] != gen && c1 == max[maxOff + xi]) {
+                    maxFlags[xi] = gen;
+                    minFlags[mi] = gen;
+                    matches++;
+                    hit = true;
+                    break;
+                }
+            }
+            if (!hit && bounded && upperBound(matches + (minLen - mi - 1), aLen, bLen, prefix) < minScore)
+                return 0d;
+        }
+        if (matches == 0)
+            return 0d;
+
+        // matched characters of both sides, in order; count positions that differ
+        int transpositions = 0;
+        for (int mi = 0, xi = 0; mi < minLen; mi++) {
+            if (minFlags[mi] != gen)
+                continue;
+            while (maxFlags[xi] != gen)
+                xi++;
+            if (min[minOff + mi] != max[maxOff + xi])
+                transpositions++;
+            xi++;
+        }
+
+        double m = matches;
+        double j = (m / aLen + m / bLen + (m - (double) transpositions / 2) / m) / 3;
+        return j < BOOST_THRESHOLD ? j : j + SCALING_FACTOR * prefix * (1d - j);
+    }
+
+    /** Best score any two strings of these lengths can reach: every character of the shorter one matching. */
+    static double lengthBound(int aLen, int bLen) {
+        if (aLen == bLen)
+            return 1d;
+        int m = Math.min(aLen, bLen);
+        return upperBound(m, aLen, bLen, Math.min(MAX_PREFIX, m));
+    }
+
+    /** Best score reachable with {@code m} matches and no transpositions. */
+    private static double upperBound(int m, int aLen, int bLen, int prefix) {
+        if (m <= 0)
+            return 0d;
+        double md = m;
+        double j = (md / aLen + md / bLen + 1d) / 3;
+        return j < BOOST_THRESHOLD ? j : j + SCALING_FACTOR * prefix * (1d - j);
+    }
+
+    private static final class Scratch {
+        int[] minFlags = new int[64];
+        int[] maxFlags = new int[64];
+        int gen;
+
+        int next(int minLen, int maxLen) {
+            if (minFlags.length < minLen)
+                minFlags = new int[Math.max(minLen, minFlags.length * 2)];
+            if (maxFlags.length < maxLen)
+                maxFlags = new int[Math.max(maxLen, maxFlags.length * 2)];
+            if (++gen == 0) {
+                Arrays.fill(minFlags, 0);
+                Arrays.fill(maxFlags, 0);
+                gen = 1;
+            }
+            return gen;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Posting lists keyed by a 64-bit hash: each distinct key owns a run of
+ * ascending, de-duplicated ordinals in one shared array, and keys sit in an
+ * open-addressing table, so a lookup is one probe sequence and one copy.
+ */
+final class LongKeyPostings {
+    static final LongKeyPostings EMPTY = new LongKeyPostings(new long[0], new int[0], 0);
+
+    private final long[] keys; // distinct, ascending
+    private final int[] offsets; // keys.length + 1
+    private final int[] ordinals;
+    private final int[] slots; // key index + 1, or 0 for empty
+    private final int mask;
+
+    /** Groups the first {@code n} {@code (pairKeys[i], pairOrds[i])} pairs by key. */
+    LongKeyPostings(long[] pairKeys, int[] pairOrds, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> pairKeys[a] != pairKeys[b] ? Long.compare(pairKeys[a], pairKeys[b])
+                : Integer.compare(pairOrds[a], pairOrds[b]));
+
+        long[] k = new long[n];
+        int[] off = new int[n + 1];
+        int[] ords = new int[n];
+        int distinct = 0, m = 0;
+        for (int i = 0; i < n; i++) {
+            long key = pairKeys[order[i]];
+            int ord = pairOrds[order[i]];
+            if (distinct == 0 || k[distinct - 1] != key) {
+                k[distinct++] = key;
+                off[distinct - 1] = m;
+            } else if (ords[m - 1] == ord) {
+                continue; // the same ordinal twice under one key
+            }
+            ords[m++] = ord;
+        }
+        off[distinct] = m;
+        this.keys = Arrays.copyOf(k, distinct);
+        this.offsets = Arrays.copyOf(off, distinct + 1);
+        this.ordinals = Arrays.copyOf(ords, m);
+
+        int size = Integer.highestOneBit(Math.max(2, distinct * 2) - 1) << 1;
+        this.slots = new int[size];
+        this.mask = size - 1;
+        for (int i = 0; i < distinct; i++) {
+            int s = slot(keys[i]);
+            while (slots[s] != 0)
+                s = (s + 1) & mask;
+            slots[s] = i + 1;
+        }
+    }
+
+    private LongKeyPostings(long[] keys, int[] offsets, int[] ordinals, int[] slots) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.ordinals = ordinals;
+        this.slots = slots;
+        this.mask = slots.length - 1;
+    }
+
+    /** Writes the table for {@link SnapshotFile}, as {@link #read} takes it back. */
+    void write(SnapshotFile.Out out) throws IOException {
+        out.data.writeInt(keys.length);
+        out.data.writeInt(ordinals.length);
+        out.data.writeInt(slots.length);
+        out.longs(keys, keys.length);
+        out.ints(offsets, offsets.length);
+        out.ints(ordinals, ordinals.length);
+        out.ints(slots, slots.length);
+    }
+
+    static LongKeyPostings read(SnapshotFile.In in) {
+        int distinct = in.buf.getInt(), n = in.buf.getInt(), size = in.buf.getInt();
+        if (Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("not a hash table size: " + size);
+        return new LongKeyPostings(in.longs(distinct), in.ints(distinct + 1, 0), in.ints(n, 0), in.ints(size, 0));
+    }
+
+    /** Ascending ordinals posted under {@code key}; empty if none. */
+    int[] get(long key) {
+        for (int s = slot(key); slots[s] != 0; s = (s + 1) & mask) {
+            int i = slots[s] - 1;
+            if (keys[i] == key)
+                return Arrays.copyOfRange(ordinals, offsets[i], offsets[i + 1]);
+        }
+        return Postings.EMPTY;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /** FNV-1a over the chars, then a 64-bit finalizer so sums and mixes of hashes stay well spread. */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
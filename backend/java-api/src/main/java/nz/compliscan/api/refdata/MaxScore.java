@@ -0,0 +1,129 @@
+package nz.compliscan.api.refdata;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Document-at-a-time max-score traversal of the posting lists of the
+ * input's tokens, each with a weight: it visits every entry whose lists
+ * add up to at least a needed weight, with that exact sum, and never
+ * touches the others.
+ *
+ * Lists are ordered by weight, lightest (most common tokens) first. The
+ * longest prefix whose weights sum below the need is non-essential: an
+ * entry found only there cannot reach it, so candidates come from the
+ * remaining essential lists alone, and the non-essential ones are only
+ * probed, skipping ahead, while the entry can still make it. The visitor
+ * may raise the need as it goes (a filling top-K), which moves more lists
+ * into the non-essential prefix.
+ */
+final class MaxScore {
+    /** Sees one entry and its shared weight; returns the weight needed from now on. */
+    @FunctionalInterface
+    interface Visitor {
+        double visit(int ord, double shared);
+    }
+
+    private final int[][] lists;
+    private final double[] weights;
+    private final double[] prefix; // prefix[i] = weights[0] + ... + weights[i - 1]
+
+    MaxScore(int[][] lists, double[] weights) {
+        // lightest first; among equal weights the longest list is the one to leave out
+        Integer[] order = IntStream.range(0, lists.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> weights[i])
+                .thenComparing(i -> -lists[i].length));
+        this.lists = new int[lists.length][];
+        this.weights = new double[lists.length];
+        this.prefix = new double[lists.length + 1];
+        for (int i = 0; i < lists.length; i++) {
+            this.lists[i] = lists[order[i]];
+            this.weights[i] = weights[order[i]];
+            prefix[i + 1] = prefix[i] + this.weights[i];
+        }
+    }
+
+    /** Total length of the lists candidates are drawn from at this need. */
+    long essentialLength(double need) {
+        long n = 0;
+        for (int i = firstEssential(need, 0); i < lists.length; i++)
+            n += lists[i].length;
+        return n;
+    }
+
+    /** Ascending ordinals of every entry reaching {@code need}. */
+    int[] candidates(double need) {
+        var out = new int[][] { new int[64] };
+        var n = new int[1];
+        traverse(need, (ord, shared) -> {
+            if (n[0] == out[0].length)
+                out[0] = Arrays.copyOf(out[0], n[0] * 2);
+            out[0][n[0]++] = ord;
+            return need;
+        });
+        return Arrays.copyOf(out[0], n[0]);
+    }
+
+    /** Visits, in ordinal order, every entry whose shared weight reaches the current need. */
+    void traverse(double need, Visitor visitor) {
+        int n = lists.length;
+        int[] pos = new int[n];
+        int essential = firstEssential(need, 0);
+        while (essential < n) {
+            int ord = Integer.MAX_VALUE;
+            for (int i = essential; i < n; i++) {
+                if (pos[i] < lists[i].length)
+                    ord = Math.min(ord, lists[i][pos[i]]);
+            }
+            if (ord == Integer.MAX_VALUE)
+                return;
+
+            double shared = 0;
+            for (int i = essential; i < n; i++) {
+                if (pos[i] < lists[i].length && lists[i][pos[i]] == ord) {
+                    shared += weights[i];
+                    pos[i]++;
+                }
+            }
+            // heaviest non-essential list first; stop once even all the rest cannot make up the gap
+            int i = essential - 1;
+            for (; i >= 0 && shared + prefix[i + 1] >= need; i--) {
+                pos[i] = advance(lists[i], pos[i], ord);
+                if (pos[i] < lists[i].length && lists[i][pos[i]] == ord)
+                    shared += weights[i];
+            }
+            if (i < 0 && shared >= need) {
+                need = visitor.visit(ord, shared);
+                essential = firstEssential(need, essential);
+            }
+        }
+    }
+
+    // the need only grows, so the boundary only moves right
+    private int firstEssential(double need, int from) {
+        int p = from;
+        while (p < lists.length && prefix[p + 1] < need)
+            p++;
+        return p;
+    }
+
+    // first index at or after from holding a value >= ord, galloping then bisecting
+    private static int advance(int[] list, int from, int ord) {
+        int step = 1, lo = from, hi = from;
+        while (hi < list.length && list[hi] < ord) {
+            lo = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, list.length);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (list[mid] < ord)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
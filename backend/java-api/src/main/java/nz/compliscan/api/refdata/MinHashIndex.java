@@ -0,0 +1,106 @@
+package nz.compliscan.api.refdata;
+
+import java.util.*;
+
+/**
+ * Locality-sensitive index over the token sets of an index's names, for
+ * finding entries with a high token Jaccard without touching the token
+ * postings.
+ *
+ * Each name's MinHash signature is {@link #BANDS} x {@link #ROWS} minimums
+ * of independently seeded token hashes, as a {@code long[]}. Two sets agree
+ * on one minimum with probability equal to their Jaccard {@code J}; each
+ * band folds {@code ROWS} minimums into one key, and an entry is a
+ * candidate when any band key of any of its names equals the query's. A
+ * name with Jaccard {@code J} is therefore found with probability
+ * {@code 1 - (1 - J^ROWS)^BANDS}: about 0.99 at J = 0.714, the overlap a
+ * PEP hit needs, and 0.999 at J = 0.771 for OFAC. Unlike the token
+ * postings this can miss hits, so it is only used where configured.
+ */
+final class MinHashIndex {
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+
+    private static final long[] SEEDS = new long[BANDS * ROWS];
+
+    static {
+        for (int i = 0; i < SEEDS.length; i++)
+            SEEDS[i] = LongKeyPostings.mix((i + 1) * 0x9e3779b97f4a7c15L);
+    }
+
+    private final LongKeyPostings[] bands = new LongKeyPostings[BANDS];
+
+    /** Indexes every name of the entries of {@code columns} that are not {@code removed}. */
+    MinHashIndex(EntryColumns columns, BitSet removed) {
+        int names = 0;
+        for (int ord = 0; ord < columns.size(); ord++) {
+            if (!removed.get(ord))
+                names += columns.namesTo(ord) - columns.namesFrom(ord);
+        }
+        long[][] keys = new long[BANDS][names];
+        int[] ords = new int[names];
+        long[] sig = new long[BANDS * ROWS];
+        int[] tokens = columns.tokens();
+        var nameTokens = new ArrayList<String>();
+        int n = 0;
+        for (int ord = 0; ord < columns.size(); ord++) {
+            if (removed.get(ord))
+                continue;
+            for (int name = columns.namesFrom(ord); name < columns.namesTo(ord); name++) {
+                int from = columns.tokensFrom(name), to = columns.tokensTo(name);
+                if (from == to)
+                    continue;
+                nameTokens.clear();
+                for (int i = from; i < to; i++)
+                    nameTokens.add(columns.dictionary().token(tokens[i]));
+                signature(nameTokens, sig);
+                for (int b = 0; b < BANDS; b++)
+                    keys[b][n] = bandKey(sig, b);
+                ords[n++] = ord;
+            }
+        }
+        for (int b = 0; b < BANDS; b++)
+            bands[b] = new LongKeyPostings(keys[b], ords, n);
+    }
+
+    /** Ascending ordinals of the entries sharing at least one band with {@code queryTokens}. */
+    int[] candidates(Collection<String> queryTokens) {
+        if (queryTokens.isEmpty())
+            return Postings.EMPTY;
+        long[] sig = new long[BANDS * ROWS];
+        signature(queryTokens, sig);
+        int[][] hits = new int[BANDS][];
+        int total = 0;
+        for (int b = 0; b < BANDS; b++) {
+            hits[b] = bands[b].get(bandKey(sig, b));
+            total += hits[b].length;
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] h : hits) {
+            System.arraycopy(h, 0, all, n, h.length);
+            n += h.length;
+        }
+        return Postings.sortedDistinct(all);
+    }
+
+    /** MinHash signature of a non-empty token set into {@code sig}. */
+    static void signature(Collection<String> tokens, long[] sig) {
+        Arrays.fill(sig, Long.MAX_VALUE);
+        for (String t : tokens) {
+            long h = LongKeyPostings.hash(t);
+            for (int i = 0; i < sig.length; i++) {
+                long v = LongKeyPostings.mix(h ^ SEEDS[i]);
+                if (v < sig[i])
+                    sig[i] = v;
+            }
+        }
+    }
+
+    private static long bandKey(long[] sig, int band) {
+        long k = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++)
+            k = LongKeyPostings.mix(k * 31 + sig[r]);
+        return k;
+    }
+}
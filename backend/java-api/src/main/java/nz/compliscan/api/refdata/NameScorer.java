@@ -0,0 +1,54 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * Character-level similarity of two normalized names, the part of the
+ * screening score blended with token overlap. Selected per list through
+ * {@link RefdataProperties}; every mode returns 1 only for equal names.
+ */
+public enum NameScorer {
+    /** Jaro-Winkler, the original scorer; see {@link JaroWinkler}. */
+    JARO_WINKLER {
+        @Override
+        double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, double minScore) {
+            return JaroWinkler.similarity(a, aOff, aLen, b, bOff, bLen, minScore);
+        }
+
+        @Override
+        double lengthBound(int aLen, int bLen) {
+            return JaroWinkler.lengthBound(aLen, bLen);
+        }
+    },
+    /** {@code 1 - levenshtein / longer length}; see {@link EditDistance}. */
+    LEVENSHTEIN {
+        @Override
+        double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, double minScore) {
+            return EditDistance.similarity(a, aOff, aLen, b, bOff, bLen, false, minScore);
+        }
+
+        @Override
+        double lengthBound(int aLen, int bLen) {
+            return EditDistance.lengthBound(aLen, bLen);
+        }
+    },
+    /** As {@link #LEVENSHTEIN}, with swapped adjacent characters counting as one edit. */
+    OSA {
+        @Override
+        double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, double minScore) {
+            return EditDistance.similarity(a, aOff, aLen, b, bOff, bLen, true, minScore);
+        }
+
+        @Override
+        double lengthBound(int aLen, int bLen) {
+            return EditDistance.lengthBound(aLen, bLen);
+        }
+    };
+
+    /** A result below {@code minScore} may be returned as any value below it. */
+    abstract double similarity(char[] a, int aOff, int aLen, char[] b, int bOff, int bLen, double minScore);
+
+    /**
+     * Highest similarity any two names of these lengths can have; it falls
+     * as the lengths grow apart in either direction.
+     */
+    abstract double lengthBound(int aLen, int bLen);
+}
@@ -1,29 +1,100 @@
 package nz.compliscan.api.refdata;
 
-import org.apache.commons.text.similarity.JaroWinklerDistance;
 import java.text.Normalizer;
 import java.util.*;
 
 public class NameTools {
-    private static final JaroWinklerDistance JW = new JaroWinklerDistance();
+    // what a char folds to: an ASCII letter or digit, SEPARATOR, nothing (a mark), or MULTI to fold it the slow way
+    private static final char DROP = 0, SEPARATOR = ' ', MULTI = 1;
+    private static final char[] FOLD = new char[0x2000]; // Latin, combining marks, Greek, Cyrillic, Vietnamese
 
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String f = fold(c);
+            FOLD[c] = f.isEmpty() ? DROP : f.length() == 1 ? f.charAt(0) : MULTI;
+        }
+    }
+
+    /**
+     * Lower-case ASCII letters and digits of {@code s}, diacritics removed,
+     * every run of other characters a single space, trimmed: what
+     * {@code NFD, strip \p{M}, toLowerCase(ROOT), [^a-z0-9\s] -> " ",
+     * \s+ -> " ", trim} gives, in one pass. Marks only ever vanish and
+     * everything else non-alphanumeric collapses into one space, so each
+     * code point can be folded on its own; chars below {@code U+2000} are
+     * looked up, others decomposed one at a time.
+     */
     public static String normalize(String s) {
         if (s == null)
             return "";
-        String x = Normalizer.normalize(s, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "")
-                .toLowerCase(Locale.ROOT);
-        x = x.replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
-        return x;
+        int n = s.length();
+        char[] out = new char[n];
+        int len = 0;
+        boolean space = false; // a separator is pending, written only before the next letter
+        for (int i = 0; i < n;) {
+            char c = s.charAt(i);
+            if (c < FOLD.length && FOLD[c] != MULTI) {
+                i++;
+                char f = FOLD[c];
+                if (f == DROP)
+                    continue;
+                if (f == SEPARATOR) {
+                    space = true;
+                    continue;
+                }
+                if (len + 2 > out.length)
+                    out = Arrays.copyOf(out, out.length * 2 + 2);
+                if (space && len > 0)
+                    out[len++] = ' ';
+                space = false;
+                out[len++] = f;
+                continue;
+            }
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            String folded = fold(cp);
+            for (int j = 0; j < folded.length(); j++) {
+                char f = folded.charAt(j);
+                if (f == SEPARATOR) {
+                    space = true;
+                    continue;
+                }
+                if (len + 2 > out.length)
+                    out = Arrays.copyOf(out, out.length * 2 + 2);
+                if (space && len > 0)
+                    out[len++] = ' ';
+                space = false;
+                out[len++] = f;
+            }
+        }
+        return new String(out, 0, len);
+    }
+
+    // one code point decomposed, marks dropped, lower-cased, and anything but [a-z0-9] as SEPARATOR
+    private static String fold(int cp) {
+        String d = Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFD);
+        var kept = new StringBuilder(d.length());
+        d.codePoints().filter(m -> !isMark(m)).forEach(kept::appendCodePoint);
+        String lower = kept.toString().toLowerCase(Locale.ROOT);
+        var out = new StringBuilder(lower.length());
+        for (int k = 0; k < lower.length(); k++) {
+            char c = lower.charAt(k);
+            out.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : SEPARATOR);
+        }
+        return out.toString();
     }
 
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /** Jaro-Winkler similarity (1 = identical); see {@link JaroWinkler}. */
     public static double jw(String a, String b) {
-        try {
-            Double d = JW.apply(a, b);
-            return d == null ? 0 : d;
-        } catch (Exception e) {
+        if (a == null || b == null)
             return 0;
-        }
+        return JaroWinkler.similarity(a.toCharArray(), b.toCharArray());
     }
 
     public static Set<String> tokens(String normalized) {
@@ -0,0 +1,107 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Immutable set of entry ordinals below a fixed universe size, stored in
+ * whichever of two forms is smaller: a sorted {@code int[]} while the set
+ * is sparse, or a {@code long[]} bitmap once it holds more than one ordinal
+ * in 32. Attribute filters are mostly one or the other (a rare program vs.
+ * "individual"), so this keeps both cheap to hold and to intersect.
+ */
+final class OrdinalSet {
+    private final int universe;
+    private final int cardinality;
+    private final int[] sparse; // null when dense
+    private final long[] words; // null when sparse
+
+    private OrdinalSet(int universe, int cardinality, int[] sparse, long[] words) {
+        this.universe = universe;
+        this.cardinality = cardinality;
+        this.sparse = sparse;
+        this.words = words;
+    }
+
+    /** The ascending, distinct ordinals {@code ords[0, n)}, each below {@code universe}. */
+    static OrdinalSet of(int[] ords, int n, int universe) {
+        if ((long) n * 32 <= universe)
+            return new OrdinalSet(universe, n, Arrays.copyOf(ords, n), null);
+        long[] words = new long[(universe + 63) >>> 6];
+        for (int i = 0; i < n; i++)
+            words[ords[i] >>> 6] |= 1L << ords[i];
+        return new OrdinalSet(universe, n, null, words);
+    }
+
+    /** Writes the set for {@link SnapshotFile}, in its current form, as {@link #read} takes it back. */
+    void write(SnapshotFile.Out out) throws IOException {
+        out.data.writeInt(universe);
+        out.data.writeInt(cardinality);
+        out.data.writeBoolean(sparse != null);
+        if (sparse != null)
+            out.ints(sparse, sparse.length);
+        else
+            out.longs(words, words.length);
+    }
+
+    static OrdinalSet read(SnapshotFile.In in) {
+        int universe = in.buf.getInt(), cardinality = in.buf.getInt();
+        if (in.buf.get() != 0)
+            return new OrdinalSet(universe, cardinality, in.ints(cardinality, 0), null);
+        return new OrdinalSet(universe, cardinality, null, in.longs((universe + 63) >>> 6));
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int ord) {
+        if (sparse != null)
+            return Arrays.binarySearch(sparse, ord) >= 0;
+        return ord < universe && (words[ord >>> 6] & (1L << ord)) != 0;
+    }
+
+    /** The ordinals in both sets. */
+    OrdinalSet and(OrdinalSet other) {
+        if (sparse != null || other.sparse != null) {
+            OrdinalSet small = sparse != null ? this : other, big = small == this ? other : this;
+            int[] out = big.filter(small.sparse);
+            return new OrdinalSet(universe, out.length, out, null);
+        }
+        long[] w = new long[Math.min(words.length, other.words.length)];
+        int n = 0;
+        for (int i = 0; i < w.length; i++) {
+            w[i] = words[i] & other.words[i];
+            n += Long.bitCount(w[i]);
+        }
+        return new OrdinalSet(Math.min(universe, other.universe), n, null, w);
+    }
+
+    /** The members of the ascending {@code ords} that are in this set, in order. */
+    int[] filter(int[] ords) {
+        if (ords.length == 0 || cardinality == 0)
+            return Postings.EMPTY;
+        if (sparse != null)
+            return Postings.intersect(ords, sparse);
+        int[] out = new int[ords.length];
+        int n = 0;
+        for (int ord : ords) {
+            if (contains(ord))
+                out[n++] = ord;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** Every member, ascending. */
+    int[] toArray() {
+        if (sparse != null)
+            return sparse.clone();
+        int[] out = new int[cardinality];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            for (long w = words[i]; w != 0; w &= w - 1)
+                out[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,48 @@
+package nz.compliscan.api.refdata;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for posting lists: ascending, de-duplicated {@code int[]} of entry ordinals.
+ */
+final class Postings {
+    static final int[] EMPTY = new int[0];
+
+    private Postings() {
+    }
+
+    /** Sorts {@code a} in place and drops duplicates; may return {@code a} itself. */
+    static int[] sortedDistinct(int[] a) {
+        if (a.length < 2)
+            return a;
+        Arrays.sort(a);
+        int w = 1;
+        for (int i = 1; i < a.length; i++) {
+            if (a[i] != a[w - 1])
+                a[w++] = a[i];
+        }
+        return w == a.length ? a : Arrays.copyOf(a, w);
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** Whether the ascending {@code list[from, to)} contains {@code ord}. */
+    static boolean contains(int[] list, int from, int to, int ord) {
+        return Arrays.binarySearch(list, from, to, ord) >= 0;
+    }
+}
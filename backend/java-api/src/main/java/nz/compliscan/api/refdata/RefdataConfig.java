@@ -10,8 +10,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 public class RefdataConfig {
     @Bean
     WebClient webClient() {
-        return WebClient.builder()
-                .codecs(c -> c.defaultCodecs().maxInMemorySize(32 * 1024 * 1024)) // 32MB
-                .build();
+        // refdata bodies are streamed (see ConditionalFetcher), so no in-memory cap to raise
+        return WebClient.builder().build();
     }
 }
@@ -1,20 +1,43 @@
 package nz.compliscan.api.refdata;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/refdata")
 public class RefdataController {
+    static final int MAX_BATCH = 10_000;
+
     private final ScreeningService service;
+    private final ObjectMapper json;
 
-    public RefdataController(ScreeningService service) {
+    public RefdataController(ScreeningService service, ObjectMapper json) {
         this.service = service;
+        this.json = json;
     }
 
+    /** {@code mode=full} rebuilds every index; {@code mode=delta} only re-indexes changed rows. */
     @PostMapping("/reload")
-    public ResponseEntity<?> reload() {
-        service.reload();
+    public ResponseEntity<?> reload(@RequestParam(name = "mode", required = false) String mode) {
+        if (mode == null || mode.isBlank())
+            service.reload();
+        else if (mode.equalsIgnoreCase("full"))
+            service.reload(true);
+        else if (mode.equalsIgnoreCase("delta"))
+            service.reload(false);
+        else
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "mode must be full or delta");
         return ResponseEntity.ok(service.stats());
     }
 
@@ -23,8 +46,97 @@ public class RefdataController {
         return service.stats();
     }
 
+    /** Optional country, type, program and source filters; see {@link ScreeningService.Filter}. */
     @GetMapping("/screen")
-    public ScreeningService.ScreenResult screen(@RequestParam String name) {
-        return service.screenByName(name);
+    public ScreeningService.ScreenResult screen(@RequestParam String name,
+            @RequestParam(name = "country", required = false) String country,
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "program", required = false) String program,
+            @RequestParam(name = "source", required = false) String source,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        requireReady();
+        int k = Math.max(1, Math.min(limit, 100));
+        return service.screenByName(name, new ScreeningService.Filter(country, type, program, source), k);
+    }
+
+    /** 503 until the first load (from disk or upstream) is in, or after warm-up ended with no data. */
+    private void requireReady() {
+        if (!service.isReady())
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Refdata not ready: " + service.readiness());
+    }
+
+    public record BatchLine(int index, ScreeningService.ScreenResult result) {
+    }
+
+    /**
+     * Body: a JSON array of names or {"name", "country"} objects. Response:
+     * NDJSON, one {@link BatchLine} per input item, written as each distinct
+     * name finishes (so not in input order).
+     */
+    @PostMapping(value = "/screen/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> screenBatch(@RequestBody JsonNode body,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (body == null || !body.isArray())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a JSON array of names");
+        var items = new ArrayList<ScreeningService.BatchItem>();
+        for (JsonNode n : body)
+            add(items, n);
+        return streamBatch(items, limit);
+    }
+
+    /** Same as {@link #screenBatch}, reading one name or object per NDJSON line. */
+    @PostMapping(value = "/screen/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> screenBatchNdjson(InputStream body,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) throws IOException {
+        var items = new ArrayList<ScreeningService.BatchItem>();
+        var in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        for (String line; (line = in.readLine()) != null;) {
+            if (!line.isBlank())
+                add(items, json.readTree(line));
+        }
+        return streamBatch(items, limit);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamBatch(List<ScreeningService.BatchItem> items, int limit) {
+        requireReady();
+        int k = Math.max(1, Math.min(limit, 100));
+        StreamingResponseBody out = (OutputStream os) -> {
+            try {
+                service.screenBatch(items, k, (index, result) -> {
+                    try {
+                        os.write(json.writeValueAsBytes(new BatchLine(index, result)));
+                        os.write('\n');
+                        os.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out);
+    }
+
+    private static void add(List<ScreeningService.BatchItem> items, JsonNode n) {
+        if (items.size() >= MAX_BATCH)
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + MAX_BATCH + " names per batch");
+        if (n.isTextual()) {
+            items.add(new ScreeningService.BatchItem(n.asText(), null));
+        } else if (n.isObject() && n.path("name").isTextual()) {
+            String country = n.path("country").isTextual() ? n.get("country").asText() : null;
+            items.add(new ScreeningService.BatchItem(n.get("name").asText(), country));
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Item " + items.size() + " must be a name or an object with a \"name\"");
+        }
     }
 }
@@ -18,11 +18,54 @@ public class RefdataProperties {
 
     private String ofacConsolidatedUrl = "https://www.treasury.gov/ofac/downloads/consolidated/consolidated.csv";
 
+    // Alternate names of SDN and Consolidated entries, joined on uid; blank = primary names only
+    private String ofacSdnAltUrl = "https://www.treasury.gov/ofac/downloads/alt.csv";
+
+    private String ofacConsolidatedAltUrl = "https://www.treasury.gov/ofac/downloads/consolidated/cons_alt.csv";
+
     private String pepCsvUrl = "https://data.opensanctions.org/datasets/peps/latest/peps.csv";
 
     // Default: daily at 03:30
     private String refreshCron = "0 30 3 * * *";
 
+    // Screening threads; 0 = one per available core
+    private int screeningParallelism = 0;
+
+    // Candidate count above which a list is scored in parallel partitions
+    private int parallelScreenThreshold = 50_000;
+
+    // Screening result cache; 0 disables it. Weight = 1 per result + 1 per match
+    private int resultCacheMaxEntries = 10_000;
+    private long resultCacheMaxWeight = 100_000;
+
+    // Reloads re-index only rows whose uid is new, gone or changed; false = always rebuild
+    private boolean deltaReload = true;
+
+    // Threads downloading and parsing the SDN, Consolidated, alias and PEP files at once
+    private int fetchParallelism = 5;
+
+    // Binary snapshot written after each reload and restored at startup; blank = off
+    private String snapshotPath = "";
+
+    // Character similarity blended with token overlap, per list: JARO_WINKLER, LEVENSHTEIN or OSA
+    private NameScorer ofacNameScorer = NameScorer.JARO_WINKLER;
+    private NameScorer pepNameScorer = NameScorer.JARO_WINKLER;
+
+    // Minimum Levenshtein similarity before a name is scored at all; 0 = off. Can drop real hits
+    private double ofacEditPrefilter = 0;
+    private double pepEditPrefilter = 0;
+
+    // Inputs with at least this many tokens find fuzzy candidates by MinHash/LSH
+    // (about 0.99 recall at the PEP overlap bound) instead of token postings; 0 = off
+    private int minHashMinTokens = 0;
+
+    // Token overlap weighted by IDF, per list, so rare tokens count for more than common ones
+    private boolean ofacIdfOverlap = false;
+    private boolean pepIdfOverlap = false;
+
+    // Skip scoring a list when length, token and trigram bounds show no entry can reach its threshold
+    private boolean cleanNameCheck = true;
+
     public String getOfacSdnUrl() {
         return ofacSdnUrl;
     }
@@ -39,6 +82,22 @@ public class RefdataProperties {
         this.ofacConsolidatedUrl = ofacConsolidatedUrl;
     }
 
+    public String getOfacSdnAltUrl() {
+        return ofacSdnAltUrl;
+    }
+
+    public void setOfacSdnAltUrl(String ofacSdnAltUrl) {
+        this.ofacSdnAltUrl = ofacSdnAltUrl;
+    }
+
+    public String getOfacConsolidatedAltUrl() {
+        return ofacConsolidatedAltUrl;
+    }
+
+    public void setOfacConsolidatedAltUrl(String ofacConsolidatedAltUrl) {
+        this.ofacConsolidatedAltUrl = ofacConsolidatedAltUrl;
+    }
+
     public String getPepCsvUrl() {
         return pepCsvUrl;
     }
@@ -54,4 +113,124 @@ public class RefdataProperties {
     public void setRefreshCron(String refreshCron) {
         this.refreshCron = refreshCron;
     }
+
+    public int getScreeningParallelism() {
+        return screeningParallelism;
+    }
+
+    public void setScreeningParallelism(int screeningParallelism) {
+        this.screeningParallelism = screeningParallelism;
+    }
+
+    public int getParallelScreenThreshold() {
+        return parallelScreenThreshold;
+    }
+
+    public void setParallelScreenThreshold(int parallelScreenThreshold) {
+        this.parallelScreenThreshold = parallelScreenThreshold;
+    }
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public void setResultCacheMaxEntries(int resultCacheMaxEntries) {
+        this.resultCacheMaxEntries = resultCacheMaxEntries;
+    }
+
+    public long getResultCacheMaxWeight() {
+        return resultCacheMaxWeight;
+    }
+
+    public void setResultCacheMaxWeight(long resultCacheMaxWeight) {
+        this.resultCacheMaxWeight = resultCacheMaxWeight;
+    }
+
+    public boolean isDeltaReload() {
+        return deltaReload;
+    }
+
+    public void setDeltaReload(boolean deltaReload) {
+        this.deltaReload = deltaReload;
+    }
+
+    public int getFetchParallelism() {
+        return fetchParallelism;
+    }
+
+    public void setFetchParallelism(int fetchParallelism) {
+        this.fetchParallelism = fetchParallelism;
+    }
+
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public void setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    public NameScorer getOfacNameScorer() {
+        return ofacNameScorer;
+    }
+
+    public void setOfacNameScorer(NameScorer ofacNameScorer) {
+        this.ofacNameScorer = ofacNameScorer;
+    }
+
+    public NameScorer getPepNameScorer() {
+        return pepNameScorer;
+    }
+
+    public void setPepNameScorer(NameScorer pepNameScorer) {
+        this.pepNameScorer = pepNameScorer;
+    }
+
+    public double getOfacEditPrefilter() {
+        return ofacEditPrefilter;
+    }
+
+    public void setOfacEditPrefilter(double ofacEditPrefilter) {
+        this.ofacEditPrefilter = ofacEditPrefilter;
+    }
+
+    public double getPepEditPrefilter() {
+        return pepEditPrefilter;
+    }
+
+    public void setPepEditPrefilter(double pepEditPrefilter) {
+        this.pepEditPrefilter = pepEditPrefilter;
+    }
+
+    public int getMinHashMinTokens() {
+        return minHashMinTokens;
+    }
+
+    public void setMinHashMinTokens(int minHashMinTokens) {
+        this.minHashMinTokens = minHashMinTokens;
+    }
+
+    public boolean isOfacIdfOverlap() {
+        return ofacIdfOverlap;
+    }
+
+    public void setOfacIdfOverlap(boolean ofacIdfOverlap) {
+        this.ofacIdfOverlap = ofacIdfOverlap;
+    }
+
+    public boolean isPepIdfOverlap() {
+        return pepIdfOverlap;
+    }
+
+    public void setPepIdfOverlap(boolean pepIdfOverlap) {
+        this.pepIdfOverlap = pepIdfOverlap;
+    }
+
+    public boolean isCleanNameCheck() {
+        return cleanNameCheck;
+    }
+
+    public void setCleanNameCheck(boolean cleanNameCheck) {
+        this.cleanNameCheck = cleanNameCheck;
+    }
 }
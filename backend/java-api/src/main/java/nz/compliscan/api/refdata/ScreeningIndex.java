@@ -0,0 +1,348 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * One screened list (OFAC or PEP) inside a {@link ScreeningSnapshot}: the
+ * pre-normalized entries, stored column-wise (see {@link EntryColumns}), an
+ * inverted index from normalized token to the ordinals of the entries
+ * containing it, and a hash index from each name's token set to its
+ * entries ({@link TokenSetIndex}) for exact and reordered-name hits.
+ * MinHash bands ({@link MinHashIndex}) and IDF token weights
+ * ({@link TokenWeights}) are built on demand, only where screening is
+ * configured to use them. Per-attribute entry sets
+ * ({@link AttributeIndex}) back the screening filters, and a
+ * {@link CleanNameCheck} rules out inputs no entry can match before any
+ * scoring.
+ *
+ * An entry is posted under the tokens of every one of its names, primary
+ * and aliases alike, so candidates are entries rather than names and no
+ * entry comes back twice.
+ *
+ * Posting lists are ascending, so candidate sets come back in ordinal
+ * order; equal scores are ordered by source and uid (see {@link TopK}), so
+ * a delta and a full rebuild return the same hits.
+ *
+ * {@link #withChanges} derives the next index from this one for a delta
+ * reload: removed ordinals become holes, new entries are appended to the
+ * columns (in place, see {@link EntryColumns}), only the postings of
+ * touched tokens are rebuilt and the remaining postings and the base
+ * token-set index are shared. Appended entries get their own small
+ * token-set index; once holes and appended entries pass
+ * {@link #COMPACT_RATIO} of the list, the next delta rebuilds the index
+ * from the live entries instead.
+ */
+public final class ScreeningIndex {
+    private static final BitSet NONE_REMOVED = new BitSet();
+
+    static final ScreeningIndex EMPTY = new ScreeningIndex(List.of());
+
+    static final double COMPACT_RATIO = 0.25;
+
+    private final EntryColumns columns;
+    private final BitSet removed; // ordinals a delta removed; never modified once published
+    private final int live;
+    private final int baseSize; // ordinals below are in tokenSets, the rest in tailTokenSets
+    private final int baseLive;
+    private final Map<String, int[]> postings;
+    private final TokenSetIndex tokenSets;
+    private final TokenSetIndex tailTokenSets;
+    private final AttributeIndex attributes;
+    private final CleanNameCheck cleanNames;
+    private volatile MinHashIndex minHash; // built on first use
+    private volatile TokenWeights tokenWeights; // built on first use
+
+    ScreeningIndex(List<ScreeningSnapshot.Entry> entries) {
+        this(columns(entries));
+    }
+
+    private ScreeningIndex(EntryColumns columns, Map<String, int[]> postings) {
+        this(columns, NONE_REMOVED, columns.size(), columns.size(), columns.size(), postings,
+                new TokenSetIndex(columns, 0, columns.size(), NONE_REMOVED), TokenSetIndex.EMPTY,
+                new AttributeIndex(columns, NONE_REMOVED),
+                new CleanNameCheck(columns, NONE_REMOVED, postings.keySet()));
+    }
+
+    private ScreeningIndex(EntryColumns columns) {
+        this(columns, buildPostings(columns));
+    }
+
+    private ScreeningIndex(EntryColumns columns, BitSet removed, int live, int baseSize, int baseLive,
+            Map<String, int[]> postings, TokenSetIndex tokenSets, TokenSetIndex tailTokenSets,
+            AttributeIndex attributes, CleanNameCheck cleanNames) {
+        this.columns = columns;
+        this.removed = removed;
+        this.live = live;
+        this.baseSize = baseSize;
+        this.baseLive = baseLive;
+        this.postings = postings;
+        this.tokenSets = tokenSets;
+        this.tailTokenSets = tailTokenSets;
+        this.attributes = attributes;
+        this.cleanNames = cleanNames;
+    }
+
+    /** Number of live entries. */
+    public int size() {
+        return live;
+    }
+
+    /** A copy of the entry at {@code ordinal}, or {@code null} if a delta removed it. */
+    public ScreeningSnapshot.Entry entry(int ordinal) {
+        return removed.get(ordinal) ? null : columns.entry(ordinal);
+    }
+
+    /** The entry columns, addressed by ordinal; removed ordinals still hold their old values. */
+    EntryColumns columns() {
+        return columns;
+    }
+
+    /** Ordinals of the entries containing {@code token}, ascending; empty if none. */
+    public int[] postings(String token) {
+        int[] p = postings.get(token);
+        return p == null ? Postings.EMPTY : p;
+    }
+
+    /**
+     * Ascending ordinals of the entries with a name made of exactly the
+     * distinct tokens {@code queryTokens}, in any order. Hash collisions can
+     * add an entry that differs, so these are candidates to score.
+     */
+    public int[] sameTokens(Set<String> queryTokens) {
+        return liveOf(tokenSets.lookup(queryTokens), tailTokenSets.lookup(queryTokens));
+    }
+
+    /**
+     * Live entries passing every part of {@code filter} that this list
+     * carries (see {@link AttributeIndex#carries}), or {@code null} if no
+     * part applies and the whole list stays in play.
+     */
+    OrdinalSet matching(ScreeningService.Filter filter) {
+        OrdinalSet out = null;
+        out = narrow(out, AttributeIndex.Attribute.COUNTRY, filter.country());
+        out = narrow(out, AttributeIndex.Attribute.TYPE, filter.type());
+        out = narrow(out, AttributeIndex.Attribute.PROGRAM, filter.program());
+        return narrow(out, AttributeIndex.Attribute.SOURCE, filter.source());
+    }
+
+    private OrdinalSet narrow(OrdinalSet acc, AttributeIndex.Attribute a, String value) {
+        if (value.isEmpty() || !attributes.carries(a))
+            return acc;
+        var set = attributes.get(a, value);
+        if (set == null)
+            set = OrdinalSet.of(Postings.EMPTY, 0, columns.size());
+        return acc == null ? set : acc.and(set);
+    }
+
+    CleanNameCheck cleanNames() {
+        return cleanNames;
+    }
+
+    /** MinHash bands over the live entries, built on the first call. */
+    MinHashIndex minHash() {
+        var m = minHash;
+        if (m == null) {
+            synchronized (this) {
+                m = minHash;
+                if (m == null)
+                    minHash = m = new MinHashIndex(columns, removed);
+            }
+        }
+        return m;
+    }
+
+    /** IDF weights of this index's tokens, computed on the first call. */
+    TokenWeights tokenWeights() {
+        var w = tokenWeights;
+        if (w == null) {
+            synchronized (this) {
+                w = tokenWeights;
+                if (w == null)
+                    tokenWeights = w = new TokenWeights(this);
+            }
+        }
+        return w;
+    }
+
+    // base hits minus holes, followed by the hits among appended entries
+    private int[] liveOf(int[] base, int[] tail) {
+        if (baseLive < baseSize) {
+            int w = 0;
+            for (int ord : base) {
+                if (!removed.get(ord))
+                    base[w++] = ord;
+            }
+            base = Arrays.copyOf(base, w);
+        }
+        if (tail.length == 0)
+            return base;
+
+        // appended ordinals are all above the base ones, so concatenating keeps the order
+        int[] out = Arrays.copyOf(base, base.length + tail.length);
+        System.arraycopy(tail, 0, out, base.length, tail.length);
+        return out;
+    }
+
+    /** Every live ordinal, ascending; the candidate set of a full scan. */
+    public int[] all() {
+        int[] all = new int[live];
+        int n = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (!removed.get(i))
+                all[n++] = i;
+        }
+        return all;
+    }
+
+    /** This index without holes or appended entries, rebuilding it from the live entries if needed. */
+    ScreeningIndex compacted() {
+        if (live == columns.size() && baseSize == columns.size())
+            return this;
+        var rebuilt = new EntryColumns.Builder(live);
+        for (int ord = 0; ord < columns.size(); ord++) {
+            if (!removed.get(ord))
+                rebuilt.add(columns, ord);
+        }
+        return new ScreeningIndex(rebuilt.build());
+    }
+
+    /**
+     * Writes a compacted index for {@link SnapshotFile}: its columns, its
+     * postings by token id, and its token-set index, attribute sets and
+     * clean-name check as built, which {@link #read} takes back as they are.
+     */
+    void write(SnapshotFile.Out out) throws IOException {
+        if (live != columns.size() || baseSize != columns.size())
+            throw new IllegalStateException("only a compacted index is written");
+        columns.write(out);
+        var dictionary = columns.dictionary();
+        out.data.writeInt(postings.size());
+        for (var p : postings.entrySet()) {
+            out.data.writeInt(dictionary.id(p.getKey()));
+            out.data.writeInt(p.getValue().length);
+            out.ints(p.getValue(), p.getValue().length);
+        }
+        tokenSets.write(out);
+        attributes.write(out);
+        cleanNames.write(out);
+    }
+
+    static ScreeningIndex read(SnapshotFile.In in) {
+        var columns = EntryColumns.read(in);
+        int n = columns.size();
+        var postings = new HashMap<String, int[]>();
+        for (int t = 0, count = in.buf.getInt(); t < count; t++) {
+            String token = columns.dictionary().token(in.buf.getInt());
+            int[] ords = in.ints(in.buf.getInt(), 0);
+            for (int ord : ords) {
+                if (ord < 0 || ord >= n)
+                    throw new IllegalArgumentException("posting out of range");
+            }
+            postings.put(token, ords);
+        }
+        var tokenSets = TokenSetIndex.read(in);
+        var attributes = AttributeIndex.read(in);
+        var cleanNames = CleanNameCheck.read(in);
+        return new ScreeningIndex(columns, NONE_REMOVED, n, n, n, Map.copyOf(postings), tokenSets,
+                TokenSetIndex.EMPTY, attributes, cleanNames);
+    }
+
+    /**
+     * The index after removing the entries at {@code removed} and appending
+     * {@code added}. Unchanged entries keep their ordinals; unaffected
+     * postings and attribute sets and the base token-set index are shared.
+     */
+    ScreeningIndex withChanges(int[] removed, List<ScreeningSnapshot.Entry> added) {
+        if (removed.length == 0 && added.isEmpty())
+            return this;
+        var nextRemoved = (BitSet) this.removed.clone();
+        int nextBaseLive = baseLive;
+        for (int ord : removed) {
+            nextRemoved.set(ord);
+            if (ord < baseSize)
+                nextBaseLive--;
+        }
+
+        int nextLive = live - removed.length + added.size();
+        int holes = columns.size() - live + removed.length;
+        int appended = columns.size() - baseSize + added.size();
+        if (holes + appended > COMPACT_RATIO * nextLive) {
+            var rebuilt = new EntryColumns.Builder(nextLive);
+            for (int ord = 0; ord < columns.size(); ord++) {
+                if (!nextRemoved.get(ord))
+                    rebuilt.add(columns, ord);
+            }
+            added.forEach(rebuilt::add);
+            return new ScreeningIndex(rebuilt.build());
+        }
+
+        // old postings of every touched token, plus the ordinals it gains
+        var touched = new HashMap<String, int[]>();
+        var gained = new HashMap<String, List<Integer>>();
+        for (int ord : removed) {
+            for (String t : columns.entryTokens(ord))
+                touched.putIfAbsent(t, postings(t));
+        }
+        var next = new EntryColumns.Builder(columns, added.size());
+        for (var e : added)
+            next.add(e);
+        var nextColumns = next.build();
+        for (int ord = columns.size(); ord < nextColumns.size(); ord++) {
+            for (String t : nextColumns.entryTokens(ord)) {
+                touched.putIfAbsent(t, postings(t));
+                gained.computeIfAbsent(t, k -> new ArrayList<>()).add(ord);
+            }
+        }
+
+        var nextPostings = new HashMap<>(postings);
+        for (var t : touched.entrySet()) {
+            int[] old = t.getValue();
+            var add = gained.getOrDefault(t.getKey(), List.of());
+            int[] p = new int[old.length + add.size()];
+            int n = 0;
+            for (int ord : old) {
+                if (!nextRemoved.get(ord))
+                    p[n++] = ord;
+            }
+            for (int ord : add)
+                p[n++] = ord;
+            if (n == 0)
+                nextPostings.remove(t.getKey());
+            else
+                nextPostings.put(t.getKey(), n == p.length ? p : Arrays.copyOf(p, n));
+        }
+
+        var tailSets = new TokenSetIndex(nextColumns, baseSize, nextColumns.size(), nextRemoved);
+        return new ScreeningIndex(nextColumns, nextRemoved, nextLive, baseSize, nextBaseLive,
+                Map.copyOf(nextPostings), tokenSets, tailSets,
+                attributes.withChanges(nextColumns, removed, nextRemoved, columns.size()),
+                cleanNames.withAdded(nextColumns, columns.size()));
+    }
+
+    private static EntryColumns columns(List<ScreeningSnapshot.Entry> entries) {
+        var b = new EntryColumns.Builder(entries.size());
+        entries.forEach(b::add);
+        return b.build();
+    }
+
+    // an entry is posted once under each token of any of its names
+    private static Map<String, int[]> buildPostings(EntryColumns columns) {
+        var counts = new HashMap<String, Integer>();
+        for (int ord = 0; ord < columns.size(); ord++) {
+            for (String t : columns.entryTokens(ord))
+                counts.merge(t, 1, Integer::sum);
+        }
+
+        var out = new HashMap<String, int[]>(counts.size() * 2);
+        var fill = new HashMap<String, Integer>(counts.size() * 2);
+        for (int ord = 0; ord < columns.size(); ord++) {
+            for (String t : columns.entryTokens(ord)) {
+                int[] p = out.computeIfAbsent(t, k -> new int[counts.get(k)]);
+                int at = fill.merge(t, 1, Integer::sum) - 1;
+                p[at] = ord;
+            }
+        }
+        return Map.copyOf(out);
+    }
+}
@@ -0,0 +1,77 @@
+package nz.compliscan.api.refdata;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of screening results.
+ *
+ * Keys carry the snapshot version, so a result computed against a superseded
+ * snapshot can never be served once a reload has installed a new one;
+ * {@link #retainVersion} additionally drops those entries to free the memory.
+ * Eviction is by entry count and by total weight (one per result plus one
+ * per match), whichever limit is hit first.
+ */
+final class ScreeningResultCache {
+    record Key(long version, String norm, ScreeningService.Filter filter, int limit) {
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, ScreeningService.ScreenResult> map = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    private long hits, misses, evictions;
+
+    ScreeningResultCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    boolean enabled() {
+        return maxEntries > 0 && maxWeight > 0;
+    }
+
+    synchronized ScreeningService.ScreenResult get(Key key) {
+        var r = map.get(key);
+        if (r == null)
+            misses++;
+        else
+            hits++;
+        return r;
+    }
+
+    synchronized void put(Key key, ScreeningService.ScreenResult result) {
+        long w = weigh(result);
+        if (w > maxWeight)
+            return;
+        var old = map.put(key, result);
+        weight += w - (old == null ? 0 : weigh(old));
+
+        Iterator<Map.Entry<Key, ScreeningService.ScreenResult>> it = map.entrySet().iterator();
+        while ((map.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            var eldest = it.next();
+            weight -= weigh(eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Drops every entry computed against another snapshot version. */
+    synchronized void retainVersion(long version) {
+        map.entrySet().removeIf(e -> {
+            if (e.getKey().version() == version)
+                return false;
+            weight -= weigh(e.getValue());
+            return true;
+        });
+    }
+
+    synchronized ScreeningService.CacheStats stats() {
+        return new ScreeningService.CacheStats(hits, misses, evictions, map.size(), weight);
+    }
+
+    private static long weigh(ScreeningService.ScreenResult r) {
+        return 1L + r.ofacMatches().size() + r.pepMatches().size();
+    }
+}
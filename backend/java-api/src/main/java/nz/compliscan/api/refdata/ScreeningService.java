@@ -1,45 +1,297 @@
 package nz.compliscan.api.refdata;
 
+import jakarta.annotation.PreDestroy;
 import nz.compliscan.api.refdata.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 @Service
 public class ScreeningService {
+    private static final Logger log = LoggerFactory.getLogger(ScreeningService.class);
+
     private final OfacClient ofacClient;
     private final PepClient pepClient;
     private final RefdataProperties props;
     private final RefdataCache cache = new RefdataCache();
+    private final ForkJoinPool screeningPool;
+    private final ExecutorService fetchPool;
+    private final ScreeningResultCache resultCache;
+    private final ListScoring ofacScoring;
+    private final ListScoring pepScoring;
+    private volatile ReloadStats lastReload;
+    private volatile Readiness readiness = Readiness.LOADING;
+    private final AtomicBoolean warmUpStarted = new AtomicBoolean();
+    private final LongAdder cleanChecked = new LongAdder();
+    private final LongAdder cleanShortCircuited = new LongAdder();
 
     // thresholds (tune as needed)
-    private static final double OFAC_NAME_THRESHOLD = 0.92;
-    private static final double PEP_NAME_THRESHOLD = 0.90;
-    private static final double TOKEN_WEIGHT = 0.35; // blended with JW
+    static final double OFAC_NAME_THRESHOLD = 0.92;
+    static final double PEP_NAME_THRESHOLD = 0.90;
+    static final double TOKEN_WEIGHT = 0.35; // blended with JW
+
+    static final int DEFAULT_LIMIT = 10;
+
+    // a filter passing fewer entries than this is scored as is, without the token postings
+    private static final int FILTER_SCAN_MAX = 256;
 
     public ScreeningService(OfacClient ofacClient, PepClient pepClient, RefdataProperties props) {
         this.ofacClient = ofacClient;
         this.pepClient = pepClient;
         this.props = props;
-        reload(); // initial load at startup
+        this.screeningPool = newScreeningPool(props.getScreeningParallelism());
+        this.fetchPool = newFetchPool(props.getFetchParallelism());
+        this.resultCache = new ScreeningResultCache(props.getResultCacheMaxEntries(), props.getResultCacheMaxWeight());
+        this.ofacScoring = new ListScoring(OFAC_NAME_THRESHOLD, props.getOfacNameScorer(), props.getOfacEditPrefilter(),
+                props.isOfacIdfOverlap());
+        this.pepScoring = new ListScoring(PEP_NAME_THRESHOLD, props.getPepNameScorer(), props.getPepEditPrefilter(),
+                props.isPepIdfOverlap());
+    }
+
+    /**
+     * How one list is scored: the hit threshold, the character similarity
+     * blended with token overlap, and an optional Levenshtein pre-filter.
+     * With {@code editPrefilter > 0}, a name whose Levenshtein similarity to
+     * the input is below it scores 0 without running the scorer; this trades
+     * recall for throughput and is off by default. With {@code idfOverlap},
+     * the token overlap is weighted by {@link TokenWeights}: shared weight
+     * over the weight of the union of the two token sets.
+     */
+    record ListScoring(double threshold, NameScorer scorer, double editPrefilter, boolean idfOverlap) {
+    }
+
+    /**
+     * The input as one list scores it: its characters, its distinct tokens
+     * and the ascending ids of those the list's {@link TokenDictionary} has,
+     * with, when the list weighs overlap by IDF, the weight of each id and
+     * the total weight (unknown tokens included). Unweighted, every token
+     * weighs 1.
+     */
+    private record Query(char[] chars, Set<String> tokens, int[] ids, double[] idWeights, double weight,
+            double lightest, TokenWeights idf) {
+
+        static Query of(ScreeningIndex idx, String norm, Set<String> tA, ListScoring scoring) {
+            int[] ids = idx.columns().dictionary().ids(tA);
+            if (!scoring.idfOverlap())
+                return new Query(norm.toCharArray(), tA, ids, null, tA.size(), 1, null);
+            var idf = idx.tokenWeights();
+            double[] idWeights = new double[ids.length];
+            double total = 0, lightest = Double.MAX_VALUE;
+            for (String t : tA) {
+                double w = idf.idf(t);
+                total += w;
+                lightest = Math.min(lightest, w);
+            }
+            for (int i = 0; i < ids.length; i++)
+                idWeights[i] = idf.idf(idx.columns().dictionary().token(ids[i]));
+            return new Query(norm.toCharArray(), tA, ids, idWeights, total, lightest, idf);
+        }
+
+        double weight(int i) {
+            return idWeights == null ? 1 : idWeights[i];
+        }
+
+        /**
+         * Highest token overlap of a name whose token set is not the input's:
+         * it either misses an input token, or has one more, weighing at least
+         * 1 (or {@link TokenWeights#MIN_IDF}).
+         */
+        double otherSetOverlap() {
+            if (tokens.isEmpty())
+                return 0;
+            if (idWeights == null)
+                return tokens.size() / (tokens.size() + 1.0);
+            // slack for the rounding of the per-name sums
+            return Math.max((weight - lightest) / weight, weight / (weight + TokenWeights.MIN_IDF)) + 1e-9;
+        }
+    }
+
+    /**
+     * LOADING until the first data is in; READY when the last reload fetched
+     * every source; STALE when serving older data because a source failed (or
+     * only the disk snapshot is in so far); FAILED when warm-up ended with no
+     * data at all. Screening is only served when READY or STALE.
+     */
+    public enum Readiness {
+        LOADING, READY, STALE, FAILED
+    }
+
+    /** Starts {@link #warmUp()} in the background once the context is up, so startup never waits on the network. */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        if (!warmUpStarted.compareAndSet(false, true))
+            return;
+        var t = new Thread(this::warmUp, "refdata-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Restores the disk snapshot, if any, then runs the first reload; blocks until both are done. */
+    public void warmUp() {
+        long start = System.nanoTime();
+        if (restoreSnapshot())
+            readiness = Readiness.STALE;
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            readiness = hasData() ? Readiness.STALE : Readiness.FAILED;
+            log.error("Refdata warm-up failed", e);
+            return;
+        }
+        log.info("Refdata warm-up finished in {} ms: {}", (System.nanoTime() - start) / 1_000_000, readiness);
+    }
+
+    public Readiness readiness() {
+        return readiness;
+    }
+
+    public boolean isReady() {
+        var r = readiness;
+        return r == Readiness.READY || r == Readiness.STALE;
+    }
+
+    private void requireReady() {
+        if (!isReady())
+            throw new IllegalStateException("Refdata is not ready: " + readiness);
+    }
+
+    private boolean hasData() {
+        var snap = cache.getSnapshot();
+        return !snap.ofacEntries().isEmpty() || !snap.pepEntries().isEmpty();
+    }
+
+    private boolean restoreSnapshot() {
+        Path path = snapshotPath();
+        if (path == null || !Files.isRegularFile(path))
+            return false;
+        try {
+            long start = System.nanoTime();
+            var snapshot = SnapshotFile.read(path);
+            ofacClient.seed(snapshot.ofacEntries());
+            pepClient.seed(snapshot.pepEntries());
+            prepare(snapshot);
+            cache.publish(snapshot);
+            log.info("Restored refdata snapshot from {} ({} OFAC, {} PEP) in {} ms", path,
+                    snapshot.ofacEntries().size(), snapshot.pepEntries().size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable refdata snapshot {}: {}", path, e.toString());
+            return false;
+        }
+    }
+
+    // builds the optional structures screening will use, so the first screens do not pay for them
+    private void prepare(ScreeningSnapshot snapshot) {
+        if (props.getMinHashMinTokens() > 0) {
+            snapshot.ofac().minHash();
+            snapshot.peps().minHash();
+        }
+        if (props.isOfacIdfOverlap())
+            snapshot.ofac().tokenWeights();
+        if (props.isPepIdfOverlap())
+            snapshot.peps().tokenWeights();
+    }
+
+    private void saveSnapshot(ScreeningSnapshot snapshot) {
+        Path path = snapshotPath();
+        if (path == null || (snapshot.ofacEntries().isEmpty() && snapshot.pepEntries().isEmpty()))
+            return;
+        try {
+            SnapshotFile.write(snapshot, path);
+        } catch (Exception e) {
+            log.warn("Could not write refdata snapshot {}: {}", path, e.toString());
+        }
+    }
+
+    private Path snapshotPath() {
+        String p = props.getSnapshotPath();
+        return p == null || p.isBlank() ? null : Path.of(p);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        screeningPool.shutdownNow();
+        fetchPool.shutdownNow();
     }
 
     // ✅ Use property placeholder, not SpEL:
     // env var: REFDATA_REFRESH_CRON
     @Scheduled(cron = "${refdata.refresh-cron:0 30 3 * * *}")
     public void scheduledReload() {
-        reload();
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            if (readiness == Readiness.READY)
+                readiness = Readiness.STALE;
+            log.error("Scheduled refdata reload failed", e);
+        }
     }
 
-    public synchronized void reload() {
-        var ofac = ofacClient.fetchAll();
-        var peps = pepClient.fetchAll();
-        cache.replace(ofac, peps);
+    /** Reloads both lists, as a delta unless {@code refdata.delta-reload} is off. */
+    public void reload() {
+        reload(!props.isDeltaReload());
     }
 
-    public record Match(String source, String uid, String display, double score, String extra) {
+    /**
+     * Fetches both lists and publishes the next snapshot. With {@code full}
+     * unset, only the rows whose uid is new, gone or changed since the current
+     * snapshot are re-indexed; a full reload rebuilds every index.
+     */
+    public synchronized void reload(boolean full) {
+        long start = System.nanoTime();
+        // SDN, Consolidated and PEP download and parse side by side on the fetch pool
+        var ofacF = ofacClient.fetch(full, fetchPool);
+        var pepsF = pepClient.fetch(full, fetchPool);
+        var ofac = ofacF.join();
+        var peps = pepsF.join();
+        long fetchMs = (System.nanoTime() - start) / 1_000_000;
+        var sources = new ArrayList<SourceFetch>(ofac.sources());
+        sources.addAll(peps.sources());
+
+        // every source answered 304 or sent the same bytes: nothing to rebuild or publish
+        if (!full && !ofac.changed() && !peps.changed() && cache.getSnapshot() != ScreeningSnapshot.EMPTY) {
+            lastReload = new ReloadStats("UNCHANGED", (System.nanoTime() - start) / 1_000_000, fetchMs,
+                    ScreeningSnapshot.Changes.NONE, ScreeningSnapshot.Changes.NONE, List.copyOf(sources));
+        } else {
+            var snapshot = cache.getSnapshot().update(ofac.rows(), peps.rows(), full);
+            prepare(snapshot);
+            cache.publish(snapshot);
+            resultCache.retainVersion(snapshot.version());
+            saveSnapshot(snapshot);
+            lastReload = new ReloadStats(full ? "FULL" : "DELTA", (System.nanoTime() - start) / 1_000_000, fetchMs,
+                    snapshot.ofacChanges(), snapshot.pepChanges(), List.copyOf(sources));
+        }
+
+        boolean anyFailed = sources.stream().anyMatch(f -> f.status() == SourceFetch.Status.FAILED);
+        readiness = !anyFailed ? Readiness.READY : hasData() ? Readiness.STALE : Readiness.FAILED;
+    }
+
+    /** {@code alias} is the alternate name that scored best, or {@code null} if it was the primary name. */
+    public record Match(String source, String uid, String display, double score, String extra, String alias) {
+
+        public Match(String source, String uid, String display, double score, String extra) {
+            this(source, uid, display, score, extra, null);
+        }
     }
 
     public record ScreenResult(
@@ -51,57 +303,464 @@ public class ScreeningService {
     }
 
     public ScreenResult screenByName(String name) {
-        String norm = NameTools.normalize(name);
+        return screenByName(name, DEFAULT_LIMIT);
+    }
+
+    /** Screens {@code name}, keeping at most {@code limit} matches per list. */
+    public ScreenResult screenByName(String name, int limit) {
+        return screenByName(name, Filter.NONE, limit);
+    }
+
+    /**
+     * Optional screening filters; blank parts are ignored and values compare
+     * case-insensitively. Each part narrows only the lists whose entries
+     * carry that attribute: {@code country} the PEP list, {@code type} (e.g.
+     * "individual") and {@code program} (e.g. "SDGT") the OFAC list, and
+     * {@code source} ("OFAC:SDN", "OFAC:Consolidated" or "PEP") both.
+     */
+    public record Filter(String country, String type, String program, String source) {
+        public static final Filter NONE = new Filter(null, null, null, null);
+
+        public Filter {
+            country = key(country);
+            type = key(type);
+            program = key(program);
+            source = key(source);
+        }
+
+        public static Filter country(String country) {
+            return new Filter(country, null, null, null);
+        }
+
+        private static String key(String value) {
+            return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Screens {@code name}, keeping at most {@code limit} matches per list.
+     * A non-blank {@code country} narrows PEP matches to entries listing that
+     * country; OFAC entries carry no country and are never filtered out.
+     */
+    public ScreenResult screenByName(String name, String country, int limit) {
+        return screenByName(name, Filter.country(country), limit);
+    }
+
+    /** Screens {@code name} against the entries passing {@code filter}, keeping at most {@code limit} per list. */
+    public ScreenResult screenByName(String name, Filter filter, int limit) {
+        requireReady();
+        return screen(cache.getSnapshot(), name, NameTools.normalize(name), filter, limit);
+    }
+
+    public record BatchItem(String name, String country) {
+    }
+
+    /**
+     * Screens a batch against one snapshot. Items are de-duplicated on
+     * normalized name and country, distinct names are scored on the screening
+     * pool, and {@code sink} is called on the calling thread with each item's
+     * index and result as soon as its name completes, so out of input order.
+     */
+    public void screenBatch(List<BatchItem> items, int limit, BiConsumer<Integer, ScreenResult> sink)
+            throws InterruptedException {
+        requireReady();
+        var snap = cache.getSnapshot();
+
+        var groups = new LinkedHashMap<String, List<Integer>>();
+        var norms = new HashMap<String, String>();
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            String norm = NameTools.normalize(item.name());
+            String key = norm + '\u0000' + Filter.country(item.country()).country();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            norms.putIfAbsent(key, norm);
+        }
+
+        var done = new ExecutorCompletionService<Map.Entry<String, ScreenResult>>(screeningPool);
+        var pending = new ArrayList<Future<Map.Entry<String, ScreenResult>>>(groups.size());
+        try {
+            for (var g : groups.entrySet()) {
+                var first = items.get(g.getValue().get(0));
+                String key = g.getKey();
+                pending.add(done.submit(() -> Map.entry(key,
+                        screen(snap, first.name(), norms.get(key), Filter.country(first.country()), limit))));
+            }
+            for (int n = 0; n < pending.size(); n++) {
+                var r = await(done.take());
+                for (int i : groups.get(r.getKey())) {
+                    var res = r.getValue();
+                    sink.accept(i, new ScreenResult(items.get(i).name(), res.ofacMatches(), res.pepMatches(),
+                            res.risk()));
+                }
+            }
+        } finally {
+            pending.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private ScreenResult screen(ScreeningSnapshot snap, String name, String norm, Filter filter, int limit) {
+        if (!resultCache.enabled())
+            return compute(snap, name, norm, filter, limit);
+
+        var key = new ScreeningResultCache.Key(snap.version(), norm, filter, limit);
+        var hit = resultCache.get(key);
+        if (hit != null)
+            return new ScreenResult(name, hit.ofacMatches(), hit.pepMatches(), hit.risk());
+        var r = compute(snap, name, norm, filter, limit);
+        resultCache.put(key, r);
+        return r;
+    }
+
+    private ScreenResult compute(ScreeningSnapshot snap, String name, String norm, Filter filter, int limit) {
         var tA = NameTools.tokens(norm);
+        boolean ofacMayHit = mayHit(snap.ofac(), norm, tA, ofacScoring);
+        boolean pepMayHit = mayHit(snap.peps(), norm, tA, pepScoring);
+        if (props.isCleanNameCheck()) {
+            cleanChecked.increment();
+            if (!ofacMayHit && !pepMayHit) {
+                cleanShortCircuited.increment();
+                return new ScreenResult(name, List.of(), List.of(), "LOW");
+            }
+        }
 
         // OFAC
-        var ofac = cache.getOfac().stream()
-                .map(e -> {
-                    String n = NameTools.normalize(e.name());
-                    double jw = NameTools.jw(norm, n);
-                    double tok = NameTools.tokenOverlapScore(tA, NameTools.tokens(n));
-                    double score = blend(jw, tok);
-                    return new Match(e.source(), e.uid(), e.name(), score, e.program());
-                })
-                .filter(m -> m.score >= OFAC_NAME_THRESHOLD)
-                .sorted(Comparator.comparingDouble((Match m) -> m.score).reversed())
-                .limit(10)
-                .toList();
+        var ofac = ofacMayHit ? screenList(snap.ofac(), norm, tA, ofacScoring, limit, filter) : List.<Match>of();
 
         // PEP
-        var pep = cache.getPeps().stream()
-                .map(e -> {
-                    String n = NameTools.normalize(e.name());
-                    double jw = NameTools.jw(norm, n);
-                    double tok = NameTools.tokenOverlapScore(tA, NameTools.tokens(n));
-                    double score = blend(jw, tok);
-                    String extra = (e.country().isBlank() ? "" : e.country()) +
-                            (e.role().isBlank() ? "" : (extraSep(e.country()) + e.role()));
-                    return new Match("PEP", e.uid(), e.name(), score, extra);
-                })
-                .filter(m -> m.score >= PEP_NAME_THRESHOLD)
-                .sorted(Comparator.comparingDouble((Match m) -> m.score).reversed())
-                .limit(10)
-                .toList();
+        var pep = pepMayHit ? screenList(snap.peps(), norm, tA, pepScoring, limit, filter) : List.<Match>of();
 
         String risk = !ofac.isEmpty() ? "HIGH" : (!pep.isEmpty() ? "MEDIUM" : "LOW");
 
         return new ScreenResult(name, ofac, pep, risk);
     }
 
-    public record Stats(int ofacCount, int pepCount, long lastLoadedMs) {
+    // false when the list's clean-name check proves no entry can reach its threshold
+    private boolean mayHit(ScreeningIndex idx, String norm, Set<String> tA, ListScoring scoring) {
+        return !props.isCleanNameCheck()
+                || idx.cleanNames().maxScore(norm, tA, scoring.scorer()) >= scoring.threshold() - 1e-9;
+    }
+
+    private static <T> T await(Future<T> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, int entries, long weight) {
+    }
+
+    /**
+     * How the last reload went: FULL, DELTA, or UNCHANGED when no source had
+     * new content and nothing was rebuilt; wall time in total and for the
+     * concurrent fetch alone; per-list changes and per-source fetch outcomes
+     * (each with its own time and bytes).
+     */
+    public record ReloadStats(String mode, long tookMs, long fetchMs, ScreeningSnapshot.Changes ofac,
+            ScreeningSnapshot.Changes pep, List<SourceFetch> sources) {
+    }
+
+    /**
+     * Screens that ran the clean-name check (result cache misses only), and
+     * how many of them it answered LOW without scoring either list.
+     */
+    public record CleanNameStats(long checked, long shortCircuited) {
+    }
+
+    public record Stats(Readiness readiness, int ofacCount, int pepCount, long lastLoadedMs, CacheStats resultCache,
+            ReloadStats lastReload, CleanNameStats cleanNames) {
     }
 
     public Stats stats() {
-        return new Stats(cache.getOfac().size(), cache.getPeps().size(), cache.getLastLoadedEpochMs());
+        var snap = cache.getSnapshot();
+        return new Stats(readiness, snap.ofacEntries().size(), snap.pepEntries().size(), snap.loadedAtMs(),
+                resultCache.stats(), lastReload,
+                new CleanNameStats(cleanChecked.sum(), cleanShortCircuited.sum()));
     }
 
-    // helper blend
-    private static double blend(double jw, double token) {
-        return (jw * (1.0 - TOKEN_WEIGHT)) + (token * TOKEN_WEIGHT);
+    /**
+     * Only entries passing {@code filter} are looked at: its attribute sets
+     * are intersected first, and a selective enough filter is scored as is
+     * instead of going through the token index.
+     *
+     * Entries with a name made of exactly the input's tokens, in any order
+     * (exact hits included), are looked up by hash and scored first. Any other
+     * name has a token overlap of at most {@link Query#otherSetOverlap}, which
+     * caps its score; when that cap is below the threshold, or below every one
+     * of {@code limit} hits already found, the fuzzy pass cannot change the
+     * result and is skipped.
+     *
+     * Inputs with at least {@code minHashMinTokens} tokens, if configured,
+     * take their fuzzy candidates from the MinHash bands instead of the token
+     * postings; see {@link MinHashIndex} for the recall this trades away.
+     */
+    private List<Match> screenList(ScreeningIndex idx, String norm, Set<String> tA, ListScoring scoring, int limit,
+            Filter filter) {
+        OrdinalSet allowed = idx.matching(filter);
+        if (allowed != null && allowed.cardinality() == 0)
+            return List.of();
+        var query = Query.of(idx, norm, tA, scoring);
+        int[] same = allowed == null ? idx.sameTokens(tA) : allowed.filter(idx.sameTokens(tA));
+        TopK exact = scoreRange(idx, same, 0, same.length, query, scoring, limit);
+        double others = blend(1.0, query.otherSetOverlap());
+        if (others < scoring.threshold() || (exact.isFull() && exact.minScore() > others))
+            return toMatches(idx, exact, query, scoring);
+
+        TopK top;
+        int minHashTokens = props.getMinHashMinTokens();
+        if (allowed != null && allowed.cardinality() < FILTER_SCAN_MAX) {
+            top = scoreAll(idx, allowed.toArray(), query, scoring, limit);
+        } else if (minHashTokens > 0 && tA.size() >= minHashTokens) {
+            int[] cands = idx.minHash().candidates(tA);
+            top = scoreAll(idx, allowed == null ? cands : allowed.filter(cands), query, scoring, limit);
+        } else {
+            top = screenPostings(idx, query, scoring, limit, allowed);
+        }
+        return toMatches(idx, top, query, scoring);
+    }
+
+    /**
+     * Scores the entries of the input's token postings that can still be
+     * hits, by a {@link MaxScore} traversal.
+     *
+     * The blended score is at most {@code (1 - TOKEN_WEIGHT) + TOKEN_WEIGHT * overlap},
+     * and the overlap of any of an entry's names is at most the weight of the
+     * input tokens the entry has over the input's total weight. So an entry
+     * needs a shared weight that the threshold sets, and once {@code limit}
+     * hits are kept, one that beating the lowest of them sets; the traversal
+     * never visits entries short of it, which is what keeps inputs made of
+     * common tokens from scanning most of the list. When the threshold leaves
+     * the token part nothing to require, every entry is scored.
+     *
+     * Candidate sets too large for one thread are collected at the threshold
+     * and scored in parallel partitions instead.
+     */
+    private TopK screenPostings(ScreeningIndex idx, Query query, ListScoring scoring, int limit, OrdinalSet allowed) {
+        double threshold = scoring.threshold();
+        if (overlapNeeded(threshold) <= 0)
+            return scoreAll(idx, allowed == null ? idx.all() : allowed.toArray(), query, scoring, limit);
+
+        // tokens no list has have no postings
+        int[][] lists = new int[query.ids().length][];
+        double[] weights = new double[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = idx.postings(idx.columns().dictionary().token(query.ids()[i]));
+            weights[i] = query.weight(i);
+        }
+        var maxScore = new MaxScore(lists, weights);
+        double need = sharedNeeded(query, threshold);
+        if (maxScore.essentialLength(need) > props.getParallelScreenThreshold()) {
+            int[] cands = maxScore.candidates(need);
+            return scoreAll(idx, allowed == null ? cands : allowed.filter(cands), query, scoring, limit);
+        }
+
+        var top = new TopK(idx.columns(), limit);
+        var cols = idx.columns();
+        maxScore.traverse(need, (ord, shared) -> {
+            if (allowed == null || allowed.contains(ord)) {
+                double floor = top.isFull() ? Math.max(threshold, top.minScore()) : threshold;
+                double score = score(cols, ord, query, scoring, floor);
+                if (score >= threshold)
+                    top.offer(ord, score);
+            }
+            return top.isFull() ? sharedNeeded(query, Math.max(threshold, top.minScore())) : need;
+        });
+        return top;
+    }
+
+    // token overlap a name needs for its blended score to reach floor
+    private static double overlapNeeded(double floor) {
+        return (floor - (1.0 - TOKEN_WEIGHT)) / TOKEN_WEIGHT;
     }
 
-    private static String extraSep(String s) {
-        return (s == null || s.isBlank()) ? "" : " • ";
+    // shared token weight an entry needs for its score to reach floor
+    private static double sharedNeeded(Query query, double floor) {
+        return overlapNeeded(floor) * query.weight() - 1e-9;
+    }
+
+    private TopK scoreAll(ScreeningIndex idx, int[] cands, Query query, ListScoring scoring, int limit) {
+        return cands.length > props.getParallelScreenThreshold()
+                ? screeningPool.invoke(new PartitionTask(idx, cands, 0, cands.length, query, scoring, limit))
+                : scoreRange(idx, cands, 0, cands.length, query, scoring, limit);
+    }
+
+    /** Scores {@code cands[from, to)} into a fresh top-K. */
+    private static TopK scoreRange(ScreeningIndex idx, int[] cands, int from, int to, Query query,
+            ListScoring scoring, int limit) {
+        double threshold = scoring.threshold();
+        var top = new TopK(idx.columns(), limit);
+        var cols = idx.columns();
+        for (int i = from; i < to; i++) {
+            int ord = cands[i];
+            // once K hits are kept, anything not beating the K-th can stop scoring early
+            double floor = top.isFull() ? Math.max(threshold, top.minScore()) : threshold;
+            double score = score(cols, ord, query, scoring, floor);
+            if (score >= threshold)
+                top.offer(ord, score);
+        }
+        return top;
+    }
+
+    /**
+     * Splits a candidate range into contiguous halves until they are small
+     * enough, scores each into its own top-K and merges on the way back up.
+     * TopK orders ties by a key of the entry, not by when it was offered, so
+     * the merged result is the same as a sequential scan.
+     */
+    private static final class PartitionTask extends RecursiveTask<TopK> {
+        private final ScreeningIndex idx;
+        private final int[] cands;
+        private final int from, to;
+        private final Query query;
+        private final ListScoring scoring;
+        private final int limit;
+
+        PartitionTask(ScreeningIndex idx, int[] cands, int from, int to, Query query, ListScoring scoring,
+                int limit) {
+            this.idx = idx;
+            this.cands = cands;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.scoring = scoring;
+            this.limit = limit;
+        }
+
+        @Override
+        protected TopK compute() {
+            // a few partitions per thread so uneven ranges still balance
+            int grain = Math.max(1, cands.length / (getPool().getParallelism() * 4));
+            if (to - from <= grain)
+                return scoreRange(idx, cands, from, to, query, scoring, limit);
+
+            int mid = (from + to) >>> 1;
+            var left = new PartitionTask(idx, cands, from, mid, query, scoring, limit);
+            left.fork();
+            TopK right = new PartitionTask(idx, cands, mid, to, query, scoring, limit).compute();
+            TopK merged = left.join();
+            merged.addAll(right);
+            return merged;
+        }
+    }
+
+    private static ExecutorService newFetchPool(int parallelism) {
+        var n = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            var t = new Thread(r, "refdata-fetch-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static ForkJoinPool newScreeningPool(int parallelism) {
+        int n = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(n, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("refdata-screen-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    // Match objects are only created for the final survivors
+    private static List<Match> toMatches(ScreeningIndex idx, TopK top, Query query, ListScoring scoring) {
+        double[] scores = new double[top.size()];
+        int[] ords = top.drain(scores);
+        var out = new ArrayList<Match>(ords.length);
+        var cols = idx.columns();
+        for (int i = 0; i < ords.length; i++) {
+            int ord = ords[i];
+            out.add(new Match(cols.source(ord), cols.uid(ord), cols.display(ord), scores[i], cols.extra(ord),
+                    cols.alias(bestName(cols, ord, query, scoring))));
+        }
+        return List.copyOf(out);
+    }
+
+    /**
+     * Best score over the entry's names. Each name is bounded by the floor
+     * or by the best name so far, whichever is higher, so an alias only
+     * costs a full similarity pass when it could still win.
+     */
+    private static double score(EntryColumns cols, int ord, Query query, ListScoring scoring, double floor) {
+        double best = 0;
+        for (int name = cols.namesFrom(ord), to = cols.namesTo(ord); name < to; name++) {
+            double s = scoreName(cols, name, query, scoring, Math.max(floor, best));
+            if (s > best)
+                best = s;
+        }
+        return best;
+    }
+
+    // first of the entry's names reaching its best score; the primary name wins ties
+    private static int bestName(EntryColumns cols, int ord, Query query, ListScoring scoring) {
+        int from = cols.namesFrom(ord), to = cols.namesTo(ord);
+        int best = from;
+        double bestScore = to - from == 1 ? 0 : scoreName(cols, from, query, scoring, 0);
+        for (int name = from + 1; name < to; name++) {
+            double s = scoreName(cols, name, query, scoring, 0);
+            if (s > bestScore) {
+                best = name;
+                bestScore = s;
+            }
+        }
+        return best;
+    }
+
+    private static double scoreName(EntryColumns cols, int name, Query query, ListScoring scoring, double floor) {
+        char[] q = query.chars();
+        char[] norms = cols.norms();
+        int off = cols.normStart(name), len = cols.normLength(name);
+        if (scoring.editPrefilter() > 0
+                && EditDistance.similarity(q, 0, q.length, norms, off, len, false, scoring.editPrefilter())
+                        < scoring.editPrefilter())
+            return 0;
+        double tok = tokenOverlap(query, cols, name);
+        // lowest similarity that can still reach the floor given this token overlap
+        double minSim = (floor - tok * TOKEN_WEIGHT) / (1.0 - TOKEN_WEIGHT) - 1e-9;
+        return blend(scoring.scorer().similarity(q, 0, q.length, norms, off, len, minSim), tok);
+    }
+
+    /**
+     * {@link NameTools#tokenOverlapScore} against the distinct tokens of
+     * {@code name}, or its IDF-weighted form when the query has weights:
+     * one merge of the two ascending id arrays.
+     */
+    private static double tokenOverlap(Query query, EntryColumns cols, int name) {
+        int[] tokens = cols.tokens();
+        int from = cols.tokensFrom(name), to = cols.tokensTo(name);
+        int n = to - from, size = query.tokens().size();
+        if (size == 0 || n == 0)
+            return 0;
+        int[] ids = query.ids();
+        double[] w = query.idWeights();
+        int shared = 0;
+        double inter = 0;
+        for (int i = from, j = 0; i < to && j < ids.length;) {
+            if (tokens[i] < ids[j]) {
+                i++;
+            } else if (tokens[i] > ids[j]) {
+                j++;
+            } else {
+                shared++;
+                if (w != null)
+                    inter += w[j];
+                i++;
+                j++;
+            }
+        }
+        if (w == null)
+            return shared / (double) (size + n - shared);
+        // the same token set; summing in another order must not make it less than 1
+        if (shared == n && n == size)
+            return 1.0;
+        return inter / (query.weight() + query.idf().nameWeight(name) - inter);
+    }
+
+    // helper blend
+    private static double blend(double similarity, double token) {
+        return (similarity * (1.0 - TOKEN_WEIGHT)) + (token * TOKEN_WEIGHT);
     }
 }
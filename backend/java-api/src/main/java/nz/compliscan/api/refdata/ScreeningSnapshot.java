@@ -0,0 +1,281 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Immutable, pre-normalized view of the OFAC and PEP lists.
+ *
+ * Built once per reload so that screening only has to normalize the input
+ * name; every entry's normalized name, token set and display fields are
+ * computed here instead of on every request, together with the token index
+ * of each list (see {@link ScreeningIndex}).
+ *
+ * A snapshot holds both raw lists, their indexes, a version and the load
+ * time, and is published as a whole through {@link RefdataCache}, so a
+ * reader always sees OFAC and PEP data from the same load.
+ *
+ * {@link #update} derives the next snapshot from this one by diffing the
+ * fetched lists on source and uid: only added and modified rows are
+ * normalized and indexed, and the index of a list that did not change is
+ * reused as is (see {@link ScreeningIndex#withChanges}).
+ */
+public final class ScreeningSnapshot {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    public static final ScreeningSnapshot EMPTY = new ScreeningSnapshot(0L, 0L, List.of(), List.of(),
+            ScreeningIndex.EMPTY, ScreeningIndex.EMPTY, Changes.NONE, Changes.NONE);
+
+    /**
+     * One screenable row: what we show in a Match plus the pre-computed match
+     * keys. {@code norm} holds the normalized name as scored by {@link JaroWinkler};
+     * {@code countries} holds lower-cased country codes (PEP only);
+     * {@code type} and {@code programs} the lower-cased entity type and
+     * sanctions programs (OFAC only), for screening filters;
+     * {@code aliases} the entry's other names, each scored like the primary
+     * one, without blanks or repeats of a name already listed.
+     */
+    public record Entry(String source, String uid, String display, String extra, char[] norm, Set<String> tokens,
+            Set<String> countries, String type, Set<String> programs, List<Alias> aliases) {
+
+        public Entry(String source, String uid, String display, String extra, char[] norm, Set<String> tokens,
+                Set<String> countries, List<Alias> aliases) {
+            this(source, uid, display, extra, norm, tokens, countries, "", Set.of(), aliases);
+        }
+
+        public Entry(String source, String uid, String display, String extra, char[] norm, Set<String> tokens,
+                Set<String> countries) {
+            this(source, uid, display, extra, norm, tokens, countries, List.of());
+        }
+    }
+
+    /** An alternate name of an {@link Entry}, pre-normalized the same way. */
+    public record Alias(String display, char[] norm, Set<String> tokens) {
+    }
+
+    /**
+     * What a load changed in one list, relative to the previous snapshot.
+     * {@code rebuilt} is set when the list's index was built from scratch
+     * rather than patched.
+     */
+    public record Changes(int added, int removed, int modified, boolean rebuilt) {
+        static final Changes NONE = new Changes(0, 0, 0, false);
+
+        public boolean any() {
+            return added + removed + modified > 0;
+        }
+    }
+
+    private final long version;
+    private final long loadedAtMs;
+    private final List<SanctionEntry> ofacEntries;
+    private final List<PepEntry> pepEntries;
+    private final ScreeningIndex ofac;
+    private final ScreeningIndex peps;
+    private final Changes ofacChanges;
+    private final Changes pepChanges;
+
+    private ScreeningSnapshot(long version, long loadedAtMs, List<SanctionEntry> ofacEntries,
+            List<PepEntry> pepEntries, ScreeningIndex ofac, ScreeningIndex peps, Changes ofacChanges,
+            Changes pepChanges) {
+        this.version = version;
+        this.loadedAtMs = loadedAtMs;
+        this.ofacEntries = ofacEntries;
+        this.pepEntries = pepEntries;
+        this.ofac = ofac;
+        this.peps = peps;
+        this.ofacChanges = ofacChanges;
+        this.pepChanges = pepChanges;
+    }
+
+    public static ScreeningSnapshot build(List<SanctionEntry> ofac, List<PepEntry> peps) {
+        return EMPTY.update(ofac, peps, true);
+    }
+
+    /**
+     * The snapshot for freshly fetched lists. Rows are matched to this
+     * snapshot's rows on source and uid; unless {@code rebuild} is set, each
+     * list's index is patched with just the removed, added and modified rows.
+     * A list whose uids are blank or repeated cannot be diffed and is always
+     * rebuilt. If neither list changed the version is kept, so results
+     * cached against it stay valid.
+     */
+    public ScreeningSnapshot update(List<SanctionEntry> ofac, List<PepEntry> peps, boolean rebuild) {
+        var o = updateList(this.ofac, ofacEntries, ofac, e -> key(e.source(), e.uid()),
+                ScreeningSnapshot::ofacEntry, rebuild);
+        var p = updateList(this.peps, pepEntries, peps, e -> key("PEP", e.uid()),
+                ScreeningSnapshot::pepEntry, rebuild);
+
+        boolean changed = rebuild || o.changes().any() || p.changes().any();
+        return new ScreeningSnapshot(changed ? VERSIONS.incrementAndGet() : version, System.currentTimeMillis(),
+                List.copyOf(ofac), List.copyOf(peps), o.index(), p.index(), o.changes(), p.changes());
+    }
+
+    /** A snapshot read back from disk by {@link SnapshotFile}; gets a fresh version. */
+    static ScreeningSnapshot restore(long loadedAtMs, List<SanctionEntry> ofacEntries, List<PepEntry> pepEntries,
+            ScreeningIndex ofac, ScreeningIndex peps) {
+        return new ScreeningSnapshot(VERSIONS.incrementAndGet(), loadedAtMs, List.copyOf(ofacEntries),
+                List.copyOf(pepEntries), ofac, peps, Changes.NONE, Changes.NONE);
+    }
+
+    /** Increases with every snapshot built in this process; 0 for {@link #EMPTY}. */
+    public long version() {
+        return version;
+    }
+
+    /** Epoch millis at which this snapshot was built; 0 for {@link #EMPTY}. */
+    public long loadedAtMs() {
+        return loadedAtMs;
+    }
+
+    public List<SanctionEntry> ofacEntries() {
+        return ofacEntries;
+    }
+
+    public List<PepEntry> pepEntries() {
+        return pepEntries;
+    }
+
+    public ScreeningIndex ofac() {
+        return ofac;
+    }
+
+    public ScreeningIndex peps() {
+        return peps;
+    }
+
+    /** What the load that produced this snapshot changed in the OFAC list. */
+    public Changes ofacChanges() {
+        return ofacChanges;
+    }
+
+    /** What the load that produced this snapshot changed in the PEP list. */
+    public Changes pepChanges() {
+        return pepChanges;
+    }
+
+    private record ListUpdate(ScreeningIndex index, Changes changes) {
+    }
+
+    private static <T> ListUpdate updateList(ScreeningIndex index, List<T> prev, List<T> next,
+            Function<T, String> key, Function<T, Entry> toEntry, boolean rebuild) {
+        var before = byKey(prev, key);
+        var after = byKey(next, key);
+        if (before == null || after == null)
+            return new ListUpdate(new ScreeningIndex(next.stream().map(toEntry).toList()),
+                    new Changes(next.size(), prev.size(), 0, true));
+
+        var changed = new HashSet<String>(); // removed or modified: their old rows go
+        var appended = new ArrayList<Entry>(); // added or modified: their new rows come in
+        int added = 0, modified = 0;
+        for (var e : next) {
+            String k = key.apply(e);
+            T old = before.get(k);
+            if (old == null) {
+                added++;
+            } else if (!old.equals(e)) {
+                modified++;
+                changed.add(k);
+            } else {
+                continue;
+            }
+            if (!rebuild)
+                appended.add(toEntry.apply(e));
+        }
+        for (String k : before.keySet()) {
+            if (!after.containsKey(k))
+                changed.add(k);
+        }
+        var changes = new Changes(added, changed.size() - modified, modified, rebuild);
+        if (rebuild)
+            return new ListUpdate(new ScreeningIndex(next.stream().map(toEntry).toList()), changes);
+        if (!changes.any())
+            return new ListUpdate(index, changes);
+
+        int[] removed = new int[changed.size()];
+        int n = 0;
+        var columns = index.columns();
+        for (int ord : index.all()) {
+            if (changed.contains(key(columns.source(ord), columns.uid(ord))))
+                removed[n++] = ord;
+        }
+        return new ListUpdate(index.withChanges(Arrays.copyOf(removed, n), appended), changes);
+    }
+
+    // null if some row has no uid or shares it with another row
+    private static <T> Map<String, T> byKey(List<T> rows, Function<T, String> key) {
+        var out = new HashMap<String, T>(rows.size() * 2);
+        for (var e : rows) {
+            String k = key.apply(e);
+            if (k == null || out.put(k, e) != null)
+                return null;
+        }
+        return out;
+    }
+
+    private static String key(String source, String uid) {
+        return uid == null || uid.isBlank() ? null : source + '|' + uid;
+    }
+
+    // package-private so tests index rows the way a load does
+    static Entry ofacEntry(SanctionEntry e) {
+        return entry(e.source(), e.uid(), e.name(), e.program(), Set.of(), lower(e.type()), programs(e.program()),
+                e.aliases());
+    }
+
+    static Entry pepEntry(PepEntry e) {
+        String extra = (e.country().isBlank() ? "" : e.country()) +
+                (e.role().isBlank() ? "" : (extraSep(e.country()) + e.role()));
+        return entry("PEP", e.uid(), e.name(), extra, countries(e.country()), "", Set.of(), e.aliases());
+    }
+
+    private static Entry entry(String source, String uid, String display, String extra, Set<String> countries,
+            String type, Set<String> programs, List<String> aliasNames) {
+        String norm = NameTools.normalize(display);
+        var seen = new HashSet<String>();
+        seen.add(norm);
+        var aliases = new ArrayList<Alias>();
+        for (String a : aliasNames) {
+            String an = NameTools.normalize(a);
+            if (!an.isEmpty() && seen.add(an))
+                aliases.add(new Alias(a.strip(), an.toCharArray(), Set.copyOf(NameTools.tokens(an))));
+        }
+        return new Entry(source, uid, display, extra, norm.toCharArray(), Set.copyOf(NameTools.tokens(norm)),
+                countries, type, programs, List.copyOf(aliases));
+    }
+
+    // OpenSanctions lists several countries as "ru;ua"
+    private static Set<String> countries(String raw) {
+        if (raw == null || raw.isBlank())
+            return Set.of();
+        var out = new HashSet<String>();
+        for (String c : raw.split("[;,]")) {
+            if (!c.isBlank())
+                out.add(c.trim().toLowerCase(Locale.ROOT));
+        }
+        return Set.copyOf(out);
+    }
+
+    // the OFAC CSVs list several programs as "IRAN] [SDGT"
+    private static Set<String> programs(String raw) {
+        if (raw == null || raw.isBlank())
+            return Set.of();
+        var out = new HashSet<String>();
+        for (String p : raw.split("[\\[\\];]")) {
+            if (!p.isBlank())
+                out.add(p.trim().toLowerCase(Locale.ROOT));
+        }
+        return Set.copyOf(out);
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String extraSep(String s) {
+        return (s == null || s.isBlank()) ? "" : " • ";
+    }
+}
@@ -0,0 +1,253 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.PepEntry;
+import nz.compliscan.api.refdata.model.SanctionEntry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary copy of a {@link ScreeningSnapshot}, so a restart can screen
+ * straight away instead of waiting for (or failing on) the upstream lists.
+ *
+ * Layout, all big-endian:
+ * <pre>
+ * int magic, int format, long loadedAtMs
+ * OFAC rows:    int count, then per row 5 string refs (source, name, program, type, uid)
+ *                and a ref list of aliases
+ * PEP rows:     int count, then per row 5 string refs (name, country, role, source, uid)
+ *                and a ref list of aliases
+ * OFAC index, PEP index, each as {@link ScreeningIndex#write} lays it out:
+ *   its columns, token postings, token-set index, attribute sets and
+ *   clean-name check, as the arrays they hold
+ * string table: int count, then per string int byteLength + UTF-8 bytes
+ * long position of the string table
+ * long CRC32 of everything before it
+ * </pre>
+ * Every string is stored once and referenced by position (-1 = null); a
+ * ref list is an int count followed by that many refs. The table goes last
+ * so the writer can number strings as it meets them in one pass.
+ *
+ * Indexes are written compacted and as built, so the restored snapshot
+ * needs no normalization, tokenization or index build. Reading maps the
+ * file, decodes each distinct string once, resolves the string columns ref
+ * by ref and bulk-copies the int, long and char arrays onto the heap.
+ */
+final class SnapshotFile {
+    static final int MAGIC = 0x43534E50; // "CSNP"
+    static final int FORMAT = 5;
+
+    private SnapshotFile() {
+    }
+
+    /** Writes {@code snap} to a temp file next to {@code path} and moves it into place. */
+    static void write(ScreeningSnapshot snap, Path path) throws IOException {
+        var ofac = snap.ofac().compacted();
+        var peps = snap.peps().compacted();
+
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            var crc = new CRC32();
+            try (var fileOut = Files.newOutputStream(tmp)) {
+                var checked = new CheckedOutputStream(fileOut, crc);
+                var out = new Out(new DataOutputStream(new BufferedOutputStream(checked, 1 << 16)));
+                out.data.writeInt(MAGIC);
+                out.data.writeInt(FORMAT);
+                out.data.writeLong(snap.loadedAtMs());
+
+                out.data.writeInt(snap.ofacEntries().size());
+                for (var e : snap.ofacEntries()) {
+                    out.strs(Arrays.asList(e.source(), e.name(), e.program(), e.type(), e.uid()), false);
+                    out.strs(e.aliases(), true);
+                }
+                out.data.writeInt(snap.pepEntries().size());
+                for (var e : snap.pepEntries()) {
+                    out.strs(Arrays.asList(e.name(), e.country(), e.role(), e.source(), e.uid()), false);
+                    out.strs(e.aliases(), true);
+                }
+
+                ofac.write(out);
+                peps.write(out);
+
+                long table = out.data.size();
+                out.data.writeInt(out.strings.size());
+                for (String s : out.strings.keySet()) {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    out.data.writeInt(b.length);
+                    out.data.write(b);
+                }
+                out.data.writeLong(table);
+                out.data.flush();
+                // the checksum itself goes around the CheckedOutputStream
+                fileOut.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Maps {@code path} and restores the snapshot; throws if the file is foreign, old or damaged. */
+    static ScreeningSnapshot read(Path path) throws IOException {
+        ByteBuffer buf;
+        try (var ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.limit() < 32)
+            throw new IOException("snapshot file too short");
+        var crc = new CRC32();
+        crc.update(buf.slice(0, buf.limit() - 8));
+        if (crc.getValue() != buf.getLong(buf.limit() - 8))
+            throw new IOException("snapshot checksum mismatch");
+        if (buf.getInt() != MAGIC)
+            throw new IOException("not a refdata snapshot");
+        int format = buf.getInt();
+        if (format != FORMAT)
+            throw new IOException("unsupported snapshot format " + format);
+        long loadedAtMs = buf.getLong();
+
+        long table = buf.getLong(buf.limit() - 16);
+        if (table < buf.position() || table > buf.limit() - 20)
+            throw new IOException("damaged string table position");
+        var strings = new String[buf.getInt((int) table)];
+        var tableBuf = buf.duplicate().position((int) table + 4);
+        for (int i = 0; i < strings.length; i++) {
+            byte[] b = new byte[tableBuf.getInt()];
+            tableBuf.get(b);
+            strings[i] = new String(b, StandardCharsets.UTF_8);
+        }
+        if (tableBuf.remaining() != 16)
+            throw new IOException("damaged string table");
+
+        var in = new In(buf, strings);
+        try {
+            var ofacRows = new ArrayList<SanctionEntry>();
+            for (int i = 0, n = buf.getInt(); i < n; i++)
+                ofacRows.add(new SanctionEntry(in.str(), in.str(), in.str(), in.str(), in.str(), in.strs()));
+            var pepRows = new ArrayList<PepEntry>();
+            for (int i = 0, n = buf.getInt(); i < n; i++)
+                pepRows.add(new PepEntry(in.str(), in.str(), in.str(), in.str(), in.str(), in.strs()));
+
+            var ofac = ScreeningIndex.read(in);
+            var peps = ScreeningIndex.read(in);
+            if (buf.position() != table)
+                throw new IOException("trailing bytes in snapshot");
+            return ScreeningSnapshot.restore(loadedAtMs, ofacRows, pepRows, ofac, peps);
+        } catch (RuntimeException e) {
+            // out-of-range refs and lengths, which the checksum should already have ruled out
+            throw new IOException("damaged snapshot", e);
+        }
+    }
+
+    /** The writing side: the data stream and the strings numbered so far. */
+    static final class Out {
+        final DataOutputStream data;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        private Out(DataOutputStream data) {
+            this.data = data;
+        }
+
+        void str(String s) throws IOException {
+            data.writeInt(s == null ? -1 : strings.computeIfAbsent(s, k -> strings.size()));
+        }
+
+        /** {@code values} as refs, preceded by their count if {@code counted}. */
+        void strs(Collection<String> values, boolean counted) throws IOException {
+            if (counted)
+                data.writeInt(values.size());
+            for (String v : values)
+                str(v);
+        }
+
+        /** The first {@code n} of {@code values} as refs, without a count. */
+        void strs(String[] values, int n) throws IOException {
+            for (int i = 0; i < n; i++)
+                str(values[i]);
+        }
+
+        /** The first {@code n} of {@code values}, without a count. */
+        void ints(int[] values, int n) throws IOException {
+            for (int i = 0; i < n; i++)
+                data.writeInt(values[i]);
+        }
+
+        void longs(long[] values, int n) throws IOException {
+            for (int i = 0; i < n; i++)
+                data.writeLong(values[i]);
+        }
+
+        void chars(char[] values, int n) throws IOException {
+            for (int i = 0; i < n; i++)
+                data.writeChar(values[i]);
+        }
+    }
+
+    /**
+     * The reading side, over the mapped file. Array reads take the count the
+     * writer stored and the capacity to allocate, which may leave room to
+     * append.
+     */
+    static final class In {
+        final ByteBuffer buf;
+        private final String[] strings;
+
+        private In(ByteBuffer buf, String[] strings) {
+            this.buf = buf;
+            this.strings = strings;
+        }
+
+        String str() {
+            int ref = buf.getInt();
+            return ref < 0 ? null : strings[ref];
+        }
+
+        /** A counted ref list. */
+        List<String> strs() {
+            var out = new String[buf.getInt()];
+            for (int i = 0; i < out.length; i++)
+                out[i] = str();
+            return Arrays.asList(out);
+        }
+
+        String[] strs(int n, int capacity) {
+            var out = new String[Math.max(n, capacity)];
+            for (int i = 0; i < n; i++)
+                out[i] = str();
+            return out;
+        }
+
+        int[] ints(int n, int capacity) {
+            int[] out = new int[Math.max(n, capacity)];
+            buf.asIntBuffer().get(out, 0, n);
+            buf.position(buf.position() + 4 * n);
+            return out;
+        }
+
+        long[] longs(int n) {
+            long[] out = new long[n];
+            buf.asLongBuffer().get(out);
+            buf.position(buf.position() + 8 * n);
+            return out;
+        }
+
+        char[] chars(int n, int capacity) {
+            char[] out = new char[Math.max(n, capacity)];
+            buf.asCharBuffer().get(out, 0, n);
+            buf.position(buf.position() + 2 * n);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * Outcome of fetching one refdata URL during a reload.
+ *
+ * {@code NOT_MODIFIED}: the server answered 304 to our validators.
+ * {@code UNCHANGED}: a full body came back but hashed the same as the last
+ * one. {@code FAILED}: the request, the body or the CSV broke; {@code error}
+ * says why. In all three cases the rows from the last good fetch are kept.
+ * {@code bytes} counts body bytes actually received; {@code tookMs} is the
+ * wall time of the request and parse.
+ */
+public record SourceFetch(String source, String url, Status status, int rows, long bytes, long tookMs,
+        String error) {
+    public enum Status {
+        FETCHED, NOT_MODIFIED, UNCHANGED, FAILED
+    }
+
+    /** Whether this source brought rows that may differ from the previous fetch. */
+    public boolean changed() {
+        return status == Status.FETCHED;
+    }
+}
@@ -0,0 +1,82 @@
+package nz.compliscan.api.refdata;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the tokens of one list, numbered in the order first seen,
+ * so {@link EntryColumns} store a name's tokens as a sorted {@code int[]}
+ * and the token overlap is a merge of two int arrays instead of a string
+ * hash lookup per token.
+ *
+ * One dictionary serves a lineage of indexes: a full rebuild or compaction
+ * starts a new one, and each delta after it keeps adding to it, so ids never
+ * change under the columns a delta copies. It grows by the new tokens of
+ * those deltas only until the next rebuild, which the compaction ratio of
+ * {@link ScreeningIndex} bounds. Deltas intern concurrently with screens of
+ * older indexes looking tokens up; lookups never add.
+ */
+final class TokenDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] tokens = new String[1024];
+    private int size; // guarded by this
+
+    /** The id of {@code token}, adding it if new. */
+    int intern(String token) {
+        Integer id = ids.get(token);
+        if (id != null)
+            return id;
+        synchronized (this) {
+            id = ids.get(token);
+            if (id != null)
+                return id;
+            if (size == tokens.length)
+                tokens = Arrays.copyOf(tokens, size * 2);
+            tokens[size] = token;
+            ids.put(token, size);
+            return size++;
+        }
+    }
+
+    /** The id of {@code token}, or -1 if no list has it. */
+    int id(String token) {
+        Integer id = ids.get(token);
+        return id == null ? -1 : id;
+    }
+
+    String token(int id) {
+        return tokens[id];
+    }
+
+    /** Every token so far, in id order. */
+    synchronized List<String> tokens() {
+        return Arrays.asList(Arrays.copyOf(tokens, size));
+    }
+
+    /** Sorted ids of the known ones among the distinct {@code tokens}. */
+    int[] ids(Collection<String> tokens) {
+        int[] out = new int[tokens.size()];
+        int n = 0;
+        for (String t : tokens) {
+            int id = id(t);
+            if (id >= 0)
+                out[n++] = id;
+        }
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return out;
+    }
+
+    /** Sorted ids of the distinct {@code tokens}, adding any new ones. */
+    int[] intern(Collection<String> tokens) {
+        int[] out = new int[tokens.size()];
+        int n = 0;
+        for (String t : tokens)
+            out[n++] = intern(t);
+        Arrays.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,66 @@
+package nz.compliscan.api.refdata;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Hash index from a name's canonical key, its set of distinct tokens in any
+ * order, to the ordinals of the entries having a name with that key.
+ *
+ * The key is a 64-bit hash: the sum of a per-token hash over the distinct
+ * tokens, so it does not depend on token order and needs no sorting. Two
+ * token sets can share a hash, so callers treat the ordinals as candidates
+ * to score, not as verified matches.
+ */
+final class TokenSetIndex {
+    static final TokenSetIndex EMPTY = new TokenSetIndex(EntryColumns.EMPTY, 0, 0, new BitSet());
+
+    private final LongKeyPostings postings;
+
+    /** Indexes every name of the entries {@code [from, to)} of {@code columns}, skipping {@code removed} ones. */
+    TokenSetIndex(EntryColumns columns, int from, int to, BitSet removed) {
+        int names = 0;
+        for (int ord = from; ord < to; ord++) {
+            if (!removed.get(ord))
+                names += columns.namesTo(ord) - columns.namesFrom(ord);
+        }
+        long[] keys = new long[names];
+        int[] ords = new int[names];
+        int[] tokens = columns.tokens();
+        int n = 0;
+        for (int ord = from; ord < to; ord++) {
+            if (removed.get(ord))
+                continue;
+            for (int name = columns.namesFrom(ord); name < columns.namesTo(ord); name++) {
+                long k = 0;
+                for (int i = columns.tokensFrom(name); i < columns.tokensTo(name); i++)
+                    k += LongKeyPostings.hash(columns.dictionary().token(tokens[i]));
+                keys[n] = k;
+                ords[n++] = ord;
+            }
+        }
+        this.postings = new LongKeyPostings(keys, ords, n);
+    }
+
+    private TokenSetIndex(LongKeyPostings postings) {
+        this.postings = postings;
+    }
+
+    void write(SnapshotFile.Out out) throws IOException {
+        postings.write(out);
+    }
+
+    static TokenSetIndex read(SnapshotFile.In in) {
+        return new TokenSetIndex(LongKeyPostings.read(in));
+    }
+
+    /** Ascending ordinals of the entries with a name whose token set hashes like {@code queryTokens}. */
+    int[] lookup(Collection<String> queryTokens) {
+        if (queryTokens.isEmpty())
+            return Postings.EMPTY;
+        long key = 0;
+        for (String t : queryTokens)
+            key += LongKeyPostings.hash(t);
+        return postings.get(key);
+    }
+}
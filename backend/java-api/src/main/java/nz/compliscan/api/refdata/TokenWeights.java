@@ -0,0 +1,43 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * IDF token weights of one {@link ScreeningIndex}: {@code ln(1 + N / df)}
+ * for a token in {@code df} of its {@code N} live entries, so "mohammed"
+ * counts for far less than "zarqawi" in the weighted token overlap. A token
+ * no entry has weighs as much as one in a single entry.
+ *
+ * Per name, the sum over its distinct tokens is kept, which is the part of
+ * the weighted overlap's denominator the name contributes. Both are fixed
+ * for the index they were computed from; a reload computes them afresh.
+ */
+final class TokenWeights {
+    // the weight of a token every live entry has, and so a floor on any indexed token's weight
+    static final double MIN_IDF = Math.log(2);
+
+    private final ScreeningIndex index;
+    private final double[] nameWeights;
+
+    TokenWeights(ScreeningIndex index) {
+        this.index = index;
+        var columns = index.columns();
+        int n = columns.size();
+        this.nameWeights = new double[n == 0 ? 0 : columns.namesTo(n - 1)];
+        int[] tokens = columns.tokens();
+        for (int name = 0; name < nameWeights.length; name++) {
+            double w = 0;
+            for (int i = columns.tokensFrom(name), to = columns.tokensTo(name); i < to; i++)
+                w += idf(columns.dictionary().token(tokens[i]));
+            nameWeights[name] = w;
+        }
+    }
+
+    double idf(String token) {
+        int df = Math.max(1, index.postings(token).length);
+        return Math.log1p(index.size() / (double) df);
+    }
+
+    /** Sum of the weights of the distinct tokens of {@code name}. */
+    double nameWeight(int name) {
+        return nameWeights[name];
+    }
+}
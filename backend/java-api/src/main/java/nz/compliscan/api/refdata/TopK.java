@@ -0,0 +1,122 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * Bounded top-K collector over entry ordinals and primitive scores.
+ *
+ * Keeps a min-heap of the K best (ordinal, score) pairs, ordered by score
+ * descending, then by source and uid, then by ordinal. Source and uid
+ * identify a row across loads while ordinals do not (a delta appends
+ * modified rows), so equal scores at the cut-off keep the same entries
+ * after a delta as after a full rebuild; the ordinal only decides between
+ * rows without a usable uid, whose lists are always rebuilt. Nothing is
+ * allocated per offered entry.
+ */
+final class TopK {
+    private final EntryColumns cols;
+    private final int k;
+    private final int[] ords;
+    private final double[] scores;
+    private int size;
+
+    /** Keeps the {@code k} best of the entries of {@code cols}. */
+    TopK(EntryColumns cols, int k) {
+        if (k <= 0)
+            throw new IllegalArgumentException("k must be positive");
+        this.cols = cols;
+        this.k = k;
+        this.ords = new int[k];
+        this.scores = new double[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == k;
+    }
+
+    /** Score of the current K-th best entry; only meaningful once {@link #isFull()}. */
+    double minScore() {
+        return scores[0];
+    }
+
+    void offer(int ord, double score) {
+        if (size < k) {
+            int i = size++;
+            ords[i] = ord;
+            scores[i] = score;
+            siftUp(i);
+        } else if (better(ord, score, ords[0], scores[0])) {
+            ords[0] = ord;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /** Adds every entry of {@code other}; used to merge partial results. */
+    void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++)
+            offer(other.ords[i], other.scores[i]);
+    }
+
+    /** Drains the collector; returns ordinals best first and fills {@code scoresOut} to match. */
+    int[] drain(double[] scoresOut) {
+        int n = size;
+        int[] out = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            out[i] = ords[0];
+            scoresOut[i] = scores[0];
+            size--;
+            if (size > 0) {
+                ords[0] = ords[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return out;
+    }
+
+    // heap root is the worst kept entry: lowest score, then last by source, uid and ordinal
+    private boolean better(int ordA, double a, int ordB, double b) {
+        if (a != b)
+            return a > b;
+        int c = cols.source(ordA).compareTo(cols.source(ordB));
+        if (c == 0)
+            c = cols.uid(ordA).compareTo(cols.uid(ordB));
+        return c != 0 ? c < 0 : ordA < ordB;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!better(ords[p], scores[p], ords[i], scores[i]))
+                break;
+            swap(i, p);
+            i = p;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, worst = i;
+            if (l < size && better(ords[worst], scores[worst], ords[l], scores[l]))
+                worst = l;
+            if (r < size && better(ords[worst], scores[worst], ords[r], scores[r]))
+                worst = r;
+            if (worst == i)
+                return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int o = ords[i];
+        ords[i] = ords[j];
+        ords[j] = o;
+        double s = scores[i];
+        scores[i] = scores[j];
+        scores[j] = s;
+    }
+}
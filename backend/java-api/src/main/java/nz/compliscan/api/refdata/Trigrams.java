@@ -0,0 +1,53 @@
+package nz.compliscan.api.refdata;
+
+/**
+ * Character trigrams of normalized names.
+ *
+ * Normalized names only contain {@code [a-z0-9 ]}, so every trigram fits in a
+ * dense id below {@link #GRAMS}, which lets a set of them live in a
+ * {@link java.util.BitSet}.
+ *
+ * Names are padded with a space on both sides, so an entry that contains a
+ * query token as a whole token contains every gram of {@code " token "}.
+ */
+final class Trigrams {
+    static final int Q = 3;
+    private static final int ALPHABET = 37; // ' ', a-z, 0-9
+    static final int GRAMS = ALPHABET * ALPHABET * ALPHABET;
+
+    private Trigrams() {
+    }
+
+    static int[] grams(String norm) {
+        return grams(norm.toCharArray());
+    }
+
+    /** Distinct trigram ids of {@code " " + norm + " "}, ascending; empty for a blank name. */
+    static int[] grams(char[] norm) {
+        return grams(norm, 0, norm.length);
+    }
+
+    /** {@link #grams(char[])} of {@code norm[off, off + len)}. */
+    static int[] grams(char[] norm, int off, int len) {
+        if (len == 0)
+            return Postings.EMPTY;
+        int n = len + 2;
+        int[] out = new int[n - Q + 1];
+        int a = 0, b = code(norm[off]);
+        for (int i = 0; i < out.length; i++) {
+            int c = i + 2 < n - 1 ? code(norm[off + i + 1]) : 0;
+            out[i] = (a * ALPHABET + b) * ALPHABET + c;
+            a = b;
+            b = c;
+        }
+        return Postings.sortedDistinct(out);
+    }
+
+    private static int code(char ch) {
+        if (ch >= 'a' && ch <= 'z')
+            return ch - 'a' + 1;
+        if (ch >= '0' && ch <= '9')
+            return ch - '0' + 27;
+        return 0;
+    }
+}
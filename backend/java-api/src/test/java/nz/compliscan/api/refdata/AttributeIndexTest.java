@@ -0,0 +1,93 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.PepEntry;
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Attribute sets patched by delta reloads, against the same rows indexed
+ * from scratch. Ordinals differ between the two, so sets are compared by
+ * the uids they hold.
+ */
+class AttributeIndexTest {
+
+    private static final String[] PROGRAMS = { "SDGT", "IRAN", "IRAN] [SDGT", "UKRAINE-EO13660", "" };
+    private static final String[] COUNTRIES = { "nz", "au", "nz;au", "ru", "" };
+
+    @Test
+    void deltaReload_patchesTheSetsAFullBuildWouldHave() {
+        var rnd = new Random(5);
+        var ofac = new ArrayList<SanctionEntry>();
+        var peps = new ArrayList<PepEntry>();
+        for (int i = 0; i < 2000; i++) {
+            ofac.add(ofacRow(rnd, "o" + i));
+            peps.add(pepRow(rnd, "p" + i));
+        }
+        var snap = ScreeningSnapshot.build(ofac, peps);
+        int next = 2000;
+
+        for (int round = 0; round < 6; round++) {
+            for (int i = 0; i < 40; i++) {
+                int at = rnd.nextInt(ofac.size());
+                switch (rnd.nextInt(3)) {
+                    case 0 -> ofac.remove(at);
+                    case 1 -> ofac.set(at, ofacRow(rnd, ofac.get(at).uid()));
+                    default -> ofac.add(ofacRow(rnd, "o" + next++));
+                }
+                at = rnd.nextInt(peps.size());
+                switch (rnd.nextInt(3)) {
+                    case 0 -> peps.remove(at);
+                    case 1 -> peps.set(at, pepRow(rnd, peps.get(at).uid()));
+                    default -> peps.add(pepRow(rnd, "p" + next++));
+                }
+            }
+            snap = snap.update(List.copyOf(ofac), List.copyOf(peps), false);
+            var full = ScreeningSnapshot.build(ofac, peps);
+            if (round == 0)
+                assertThat(snap.ofacChanges().rebuilt()).isFalse();
+
+            for (String country : List.of("nz", "au", "ru", "kp", ""))
+                for (String program : List.of("sdgt", "iran", "ukraine-eo13660", ""))
+                    for (String type : List.of("individual", "entity", "")) {
+                        var filter = new ScreeningService.Filter(country, type, program, null);
+                        assertThat(uids(snap.ofac(), filter)).as("OFAC %s", filter)
+                                .isEqualTo(uids(full.ofac(), filter));
+                        assertThat(uids(snap.peps(), filter)).as("PEP %s", filter)
+                                .isEqualTo(uids(full.peps(), filter));
+                    }
+            for (String source : List.of("ofac:sdn", "ofac:consolidated", "peps")) {
+                var filter = new ScreeningService.Filter(null, null, null, source);
+                assertThat(uids(snap.ofac(), filter)).isEqualTo(uids(full.ofac(), filter));
+                assertThat(uids(snap.peps(), filter)).isEqualTo(uids(full.peps(), filter));
+            }
+        }
+    }
+
+    // null when the filter leaves the whole list in play
+    private static Set<String> uids(ScreeningIndex idx, ScreeningService.Filter filter) {
+        var set = idx.matching(filter);
+        if (set == null)
+            return null;
+        var out = new TreeSet<String>();
+        for (int ord : set.toArray())
+            out.add(idx.entry(ord).uid());
+        return out;
+    }
+
+    private static SanctionEntry ofacRow(Random rnd, String uid) {
+        return new SanctionEntry(rnd.nextBoolean() ? "OFAC:SDN" : "OFAC:Consolidated", "Name " + uid,
+                PROGRAMS[rnd.nextInt(PROGRAMS.length)], rnd.nextBoolean() ? "individual" : "entity", uid);
+    }
+
+    private static PepEntry pepRow(Random rnd, String uid) {
+        return new PepEntry("Name " + uid, COUNTRIES[rnd.nextInt(COUNTRIES.length)], "Minister", "peps", uid);
+    }
+}
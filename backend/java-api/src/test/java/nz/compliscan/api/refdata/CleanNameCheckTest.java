@@ -0,0 +1,132 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CleanNameCheckTest {
+
+    private static final String[] WORDS = { "mohammed", "ali", "hassan", "al", "rashid", "ivan", "petrov",
+            "global", "trading", "ltd", "kim", "jong", "zarqawi", "abu", "bank", "of", "x" };
+
+    private static String randomName(Random rnd) {
+        var sb = new StringBuilder();
+        for (int i = 0, n = 1 + rnd.nextInt(4); i < n; i++) {
+            if (i > 0)
+                sb.append(' ');
+            // some tokens only close to a listed one, some nowhere in the list
+            String w = WORDS[rnd.nextInt(WORDS.length)];
+            sb.append(switch (rnd.nextInt(4)) {
+            case 0 -> w + (char) ('a' + rnd.nextInt(26));
+            case 1 -> "q" + rnd.nextInt(1000);
+            default -> w;
+            });
+        }
+        return sb.toString();
+    }
+
+    private static SanctionEntry row(Random rnd, String uid) {
+        var aliases = new ArrayList<String>();
+        for (int i = 0, n = rnd.nextInt(3) == 0 ? 1 + rnd.nextInt(2) : 0; i < n; i++)
+            aliases.add(randomName(rnd));
+        return new SanctionEntry("OFAC:SDN", randomName(rnd), "SDGT", "individual", uid, aliases);
+    }
+
+    @Test
+    void maxScore_isNeverBelowAnyEntrysScore() {
+        var rnd = new Random(5);
+        var rows = new ArrayList<SanctionEntry>();
+        for (int i = 0; i < 300; i++)
+            rows.add(row(rnd, "o" + i));
+        var snap = ScreeningSnapshot.build(rows, List.of());
+        assertAdmissible(rnd, snap.ofac(), rows);
+
+        // a delta keeps the previous check's bits and adds the appended entries'
+        var next = new ArrayList<>(rows);
+        for (int i = 0; i < 20; i++) {
+            next.remove(rnd.nextInt(next.size()));
+            next.add(row(rnd, "n" + i));
+        }
+        var delta = snap.update(next, List.of(), false);
+        assertThat(delta.ofacChanges().rebuilt()).isFalse();
+        assertAdmissible(rnd, delta.ofac(), next);
+    }
+
+    // the bound against every live entry's best name, with plain and IDF-weighted overlap
+    private static void assertAdmissible(Random rnd, ScreeningIndex idx, List<SanctionEntry> rows) {
+        var df = new HashMap<String, Integer>();
+        for (var e : rows) {
+            var tokens = new HashSet<String>();
+            for (String name : names(e))
+                tokens.addAll(NameTools.tokens(NameTools.normalize(name)));
+            tokens.forEach(t -> df.merge(t, 1, Integer::sum));
+        }
+
+        for (var scorer : NameScorer.values()) {
+            for (int t = 0; t < 300; t++) {
+                String norm = NameTools.normalize(t % 10 == 0 ? names(rows.get(rnd.nextInt(rows.size()))).get(0)
+                        : randomName(rnd));
+                var tA = NameTools.tokens(norm);
+                double bound = idx.cleanNames().maxScore(norm, tA, scorer);
+                for (var e : rows) {
+                    for (String name : names(e)) {
+                        String n = NameTools.normalize(name);
+                        var tB = NameTools.tokens(n);
+                        double sim = scorer.similarity(norm.toCharArray(), 0, norm.length(), n.toCharArray(), 0,
+                                n.length(), 0);
+                        for (double overlap : List.of(NameTools.tokenOverlapScore(tA, tB),
+                                idfOverlap(tA, tB, df, rows.size()))) {
+                            double score = sim * (1.0 - ScreeningService.TOKEN_WEIGHT)
+                                    + overlap * ScreeningService.TOKEN_WEIGHT;
+                            assertThat(bound).as("%s vs '%s' (%s)", norm, n, scorer)
+                                    .isGreaterThanOrEqualTo(score - 1e-12);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // shared weight over the weight of the union, weights ln(1 + N / df)
+    private static double idfOverlap(Set<String> tA, Set<String> tB, Map<String, Integer> df, int n) {
+        if (tA.isEmpty() || tB.isEmpty())
+            return 0;
+        if (tA.equals(tB))
+            return 1;
+        double wA = 0, wB = 0, inter = 0;
+        for (String t : tA)
+            wA += Math.log1p(n / (double) Math.max(1, df.getOrDefault(t, 0)));
+        for (String t : tB) {
+            double w = Math.log1p(n / (double) Math.max(1, df.getOrDefault(t, 0)));
+            wB += w;
+            if (tA.contains(t))
+                inter += w;
+        }
+        return inter / (wA + wB - inter);
+    }
+
+    private static List<String> names(SanctionEntry e) {
+        var out = new ArrayList<String>();
+        out.add(e.name());
+        out.addAll(e.aliases());
+        return out;
+    }
+
+    @Test
+    void listedTokens_areAlwaysPresent() {
+        var snap = ScreeningSnapshot.build(List.of(
+                new SanctionEntry("OFAC:SDN", "Abu Musab al Zarqawi", "SDGT", "individual", "o0"),
+                new SanctionEntry("OFAC:SDN", "Kim Jong Un", "", "individual", "o1")), List.of());
+        var idx = snap.ofac();
+
+        for (String t : List.of("abu", "musab", "al", "zarqawi", "kim", "jong", "un"))
+            assertThat(idx.cleanNames().mayContain(t)).as(t).isTrue();
+        // "zarqaw" is a prefix of a listed token, but " zarqaw " has a trigram no name has
+        assertThat(idx.cleanNames().mayContain("zarqaw")).isFalse();
+        assertThat(idx.cleanNames().maxScore("john smith", Set.of("john", "smith"), NameScorer.JARO_WINKLER))
+                .isLessThan(ScreeningService.OFAC_NAME_THRESHOLD);
+    }
+}
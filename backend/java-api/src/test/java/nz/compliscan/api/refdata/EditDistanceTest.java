@@ -0,0 +1,104 @@
+package nz.compliscan.api.refdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EditDistanceTest {
+
+    @Test
+    void knownDistances() {
+        assertThat(EditDistance.levenshtein("kitten".toCharArray(), "sitting".toCharArray())).isEqualTo(3);
+        assertThat(EditDistance.levenshtein("".toCharArray(), "abc".toCharArray())).isEqualTo(3);
+        assertThat(EditDistance.levenshtein("ca".toCharArray(), "ac".toCharArray())).isEqualTo(2);
+        assertThat(EditDistance.osa("ca".toCharArray(), "ac".toCharArray())).isEqualTo(1);
+        // OSA edits each substring once, so this is 3 rather than the unrestricted Damerau 2
+        assertThat(EditDistance.osa("ca".toCharArray(), "abc".toCharArray())).isEqualTo(3);
+        assertThat(EditDistance.osa("josé".toCharArray(), "jsoé".toCharArray())).isEqualTo(1);
+    }
+
+    @Test
+    void bitParallel_matchesDynamicProgram() {
+        var rnd = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            // names past 64 characters need more than one word per column
+            String a = randomString(rnd, rnd.nextInt(i % 4 == 0 ? 200 : 40));
+            String b = rnd.nextBoolean() ? mutated(rnd, a) : randomString(rnd, rnd.nextInt(i % 4 == 0 ? 200 : 40));
+            assertThat(EditDistance.levenshtein(a.toCharArray(), b.toCharArray())).as("%s / %s", a, b)
+                    .isEqualTo(dynamic(a, b, false));
+            assertThat(EditDistance.osa(a.toCharArray(), b.toCharArray())).as("%s / %s", a, b)
+                    .isEqualTo(dynamic(a, b, true));
+        }
+    }
+
+    @Test
+    void maxDistance_onlyCutsOffResultsAboveIt() {
+        var rnd = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            char[] a = randomString(rnd, rnd.nextInt(100)).toCharArray();
+            char[] b = mutated(rnd, new String(a)).toCharArray();
+            int max = rnd.nextInt(8);
+            int exact = EditDistance.osa(a, b);
+            int bounded = EditDistance.distance(a, 0, a.length, b, 0, b.length, true, max);
+            if (exact <= max)
+                assertThat(bounded).isEqualTo(exact);
+            else
+                assertThat(bounded).isGreaterThan(max);
+        }
+    }
+
+    @Test
+    void similarity_scalesByLongerName() {
+        char[] a = "global trading holdings ltd".toCharArray();
+        char[] b = "global tradnig holdings ltd".toCharArray();
+        assertThat(EditDistance.similarity(a, 0, a.length, b, 0, b.length, true, 0)).isEqualTo(1 - 1 / 27d);
+        assertThat(EditDistance.similarity(a, 0, a.length, b, 0, b.length, false, 0)).isEqualTo(1 - 2 / 27d);
+        assertThat(EditDistance.similarity(a, 0, a.length, b, 0, b.length, false, 0.95)).isZero();
+        assertThat(EditDistance.similarity(a, 0, 0, b, 0, 0, false, 0)).isEqualTo(1);
+    }
+
+    private static int dynamic(String a, String b, boolean transpositions) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (transpositions && i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2)
+                        && a.charAt(i - 2) == b.charAt(j - 1))
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomString(Random rnd, int length) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            sb.append(rnd.nextInt(8) == 0 ? ' ' : (char) ('a' + rnd.nextInt(6)));
+        return sb.toString();
+    }
+
+    private static String mutated(Random rnd, String s) {
+        var sb = new StringBuilder(s);
+        for (int k = rnd.nextInt(6); k > 0 && sb.length() > 1; k--) {
+            int at = rnd.nextInt(sb.length() - 1);
+            switch (rnd.nextInt(4)) {
+                case 0 -> sb.deleteCharAt(at);
+                case 1 -> sb.insert(at, (char) ('a' + rnd.nextInt(6)));
+                case 2 -> sb.setCharAt(at, (char) ('a' + rnd.nextInt(6)));
+                default -> {
+                    char c = sb.charAt(at);
+                    sb.setCharAt(at, sb.charAt(at + 1));
+                    sb.setCharAt(at + 1, c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.PepEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static nz.compliscan.api.refdata.ScreeningSnapshot.pepEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntryColumnsTest {
+
+    @Test
+    void entries_roundTripThroughColumns() {
+        var entries = List.of(
+                pepEntry(new PepEntry("Ivan Petrov", "ru", "Minister", "peps", "q1")),
+                pepEntry(new PepEntry("", "", "", "peps", "q2")),
+                pepEntry(new PepEntry("Maria  GARCIA", "nz;au", "Minister", "peps", "q3")));
+        var b = new EntryColumns.Builder(1);
+        entries.forEach(b::add);
+        var cols = b.build();
+
+        assertThat(cols.size()).isEqualTo(3);
+        for (int ord = 0; ord < entries.size(); ord++) {
+            var want = entries.get(ord);
+            var got = cols.entry(ord);
+            assertThat(List.of(got.source(), got.uid(), got.display(), got.extra(), got.tokens(), got.countries()))
+                    .isEqualTo(List.of(want.source(), want.uid(), want.display(), want.extra(), want.tokens(),
+                            want.countries()));
+            assertThat(got.norm()).isEqualTo(want.norm());
+            assertThat(new String(cols.norms(), cols.normStart(ord), cols.normLength(ord)))
+                    .isEqualTo(new String(want.norm()));
+            assertThat(cols.grams(ord)).isEqualTo(Trigrams.grams(want.norm()));
+        }
+    }
+
+    @Test
+    void repeatedValues_shareOneDictionaryEntry() {
+        // each row's extra and countries are built afresh, as equal but separate objects
+        var b = new EntryColumns.Builder(4);
+        b.add(pepEntry(new PepEntry("Ivan Petrov", "ru", "Minister", "peps", "q1")));
+        b.add(pepEntry(new PepEntry("Olga Petrova", "ru", "Minister", "peps", "q2")));
+        var cols = b.build();
+
+        assertThat(cols.extra(1)).isSameAs(cols.extra(0));
+        assertThat(cols.countries(1)).isSameAs(cols.countries(0));
+        assertThat(cols.tokensTo(1)).isEqualTo(4);
+    }
+
+    @Test
+    void tokens_areAscendingDictionaryIds() {
+        var cols = new EntryColumns.Builder(2)
+                .add(pepEntry(new PepEntry("Ivan Petrov", "", "", "peps", "q1")))
+                .add(pepEntry(new PepEntry("Petrov Ivan", "", "", "peps", "q2")))
+                .build();
+
+        int[] first = Arrays.copyOfRange(cols.tokens(), cols.tokensFrom(0), cols.tokensTo(0));
+        int[] second = Arrays.copyOfRange(cols.tokens(), cols.tokensFrom(1), cols.tokensTo(1));
+        assertThat(first).isSorted().isEqualTo(second);
+        assertThat(Arrays.stream(first).mapToObj(cols.dictionary()::token))
+                .containsExactlyInAnyOrder("ivan", "petrov");
+    }
+
+    @Test
+    void builderFromBase_keepsOrdinalsAndAppends() {
+        var base = new EntryColumns.Builder(2)
+                .add(pepEntry(new PepEntry("Ivan Petrov", "", "", "peps", "q1")))
+                .add(pepEntry(new PepEntry("Kim Jong Un", "", "", "peps", "q2")))
+                .build();
+
+        var next = new EntryColumns.Builder(base, 1)
+                .add(pepEntry(new PepEntry("Ali Hassan", "", "", "peps", "q3")))
+                .build();
+
+        assertThat(next.size()).isEqualTo(3);
+        assertThat(List.of(next.uid(0), next.uid(1), next.uid(2))).containsExactly("q1", "q2", "q3");
+        assertThat(next.display(1)).isEqualTo("Kim Jong Un");
+        assertThat(base.size()).isEqualTo(2);
+        assertThat(next.dictionary()).isSameAs(base.dictionary());
+    }
+
+    @Test
+    void builderFromBase_appendsInPlaceOnlyOnce() {
+        var base = new EntryColumns.Builder(2)
+                .add(pepEntry(new PepEntry("Ivan Petrov", "", "", "peps", "q1")))
+                .add(pepEntry(new PepEntry("Kim Jong Un", "", "", "peps", "q2")))
+                .build();
+
+        var first = new EntryColumns.Builder(base, 1)
+                .add(pepEntry(new PepEntry("Ali Hassan", "", "", "peps", "q3")))
+                .build();
+        var second = new EntryColumns.Builder(base, 1)
+                .add(pepEntry(new PepEntry("Maria Garcia", "", "", "peps", "q4")))
+                .build();
+
+        // the first delta shares the base's arrays, the second copies and leaves the first intact
+        assertThat(first.norms()).isSameAs(base.norms());
+        assertThat(second.norms()).isNotSameAs(base.norms());
+        assertThat(first.entry(2).display()).isEqualTo("Ali Hassan");
+        assertThat(second.entry(2).display()).isEqualTo("Maria Garcia");
+        assertThat(base.size()).isEqualTo(2);
+        assertThat(base.entry(1).display()).isEqualTo("Kim Jong Un");
+    }
+
+    @Test
+    void rebuild_renumbersTokensIntoANewDictionary() {
+        var old = new EntryColumns.Builder(2)
+                .add(pepEntry(new PepEntry("Zarqawi Abu", "", "", "peps", "q1")))
+                .add(pepEntry(new PepEntry("Petrov Ivan", "", "", "peps", "q2")))
+                .build();
+
+        var rebuilt = new EntryColumns.Builder(1).add(old, 1).build();
+
+        assertThat(rebuilt.dictionary()).isNotSameAs(old.dictionary());
+        assertThat(rebuilt.dictionary().id("zarqawi")).isEqualTo(-1);
+        assertThat(Arrays.copyOfRange(rebuilt.tokens(), rebuilt.tokensFrom(0), rebuilt.tokensTo(0))).isSorted();
+        assertThat(rebuilt.entryTokens(0)).containsExactlyInAnyOrder("ivan", "petrov");
+    }
+}
@@ -0,0 +1,50 @@
+package nz.compliscan.api.refdata;
+
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JaroWinklerTest {
+    private static final JaroWinklerSimilarity REFERENCE = new JaroWinklerSimilarity();
+
+    @Test
+    void similarity_matchesCommonsText() {
+        var rnd = new Random(1);
+        for (int t = 0; t < 100_000; t++) {
+            String a = random(rnd), b = rnd.nextInt(5) == 0 ? new StringBuilder(a).reverse().toString() : random(rnd);
+            double expected = REFERENCE.apply(a, b);
+
+            assertThat(JaroWinkler.similarity(a.toCharArray(), b.toCharArray()))
+                    .as("'%s' vs '%s'", a, b)
+                    .isEqualTo(expected);
+
+            double min = rnd.nextDouble();
+            double bounded = JaroWinkler.similarity(a.toCharArray(), b.toCharArray(), min);
+            if (expected >= min)
+                assertThat(bounded).as("'%s' vs '%s' min %s", a, b, min).isEqualTo(expected);
+            else
+                assertThat(bounded).as("'%s' vs '%s' min %s", a, b, min).isLessThan(min);
+        }
+    }
+
+    @Test
+    void similarity_onSubranges() {
+        char[] buf = "xxmarthaxxmarhtaxx".toCharArray();
+        assertThat(JaroWinkler.similarity(buf, 2, 6, buf, 10, 6, 0))
+                .isEqualTo(REFERENCE.apply("martha", "marhta"));
+        assertThat(NameTools.jw("", "")).isEqualTo(1.0);
+        assertThat(NameTools.jw("abc", "")).isEqualTo(0.0);
+    }
+
+    private static String random(Random rnd) {
+        String alphabet = "abcde fgh";
+        int n = rnd.nextInt(12);
+        var sb = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            sb.append(alphabet.charAt(rnd.nextInt(rnd.nextBoolean() ? 4 : alphabet.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package nz.compliscan.api.refdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MaxScoreTest {
+
+    @Test
+    void visitsExactlyTheEntriesReachingTheNeed() {
+        var rnd = new Random(17);
+        for (int t = 0; t < 300; t++) {
+            int universe = 1 + rnd.nextInt(2000);
+            int[][] lists = new int[1 + rnd.nextInt(6)][];
+            double[] weights = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                // a few very common lists, as with "mohammed" or "al"
+                lists[i] = randomList(rnd, universe, rnd.nextInt(3) == 0 ? 0.6 : 0.02);
+                weights[i] = rnd.nextBoolean() ? 1 : 0.5 + rnd.nextDouble() * 5;
+            }
+            double need = rnd.nextDouble() * Arrays.stream(weights).sum();
+            double[] shared = shared(lists, weights, universe);
+
+            var visited = new ArrayList<Integer>();
+            new MaxScore(lists, weights).traverse(need, (ord, s) -> {
+                assertThat(s).isCloseTo(shared[ord], within(1e-9));
+                visited.add(ord);
+                return need;
+            });
+            var expected = new ArrayList<Integer>();
+            for (int ord = 0; ord < universe; ord++) {
+                if (shared[ord] >= need)
+                    expected.add(ord);
+            }
+            assertThat(visited).isEqualTo(expected);
+            assertThat(new MaxScore(lists, weights).candidates(need))
+                    .isEqualTo(expected.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    @Test
+    void risingNeed_skipsWhatCanNoLongerReachIt() {
+        var rnd = new Random(23);
+        for (int t = 0; t < 300; t++) {
+            int universe = 1 + rnd.nextInt(2000);
+            int[][] lists = new int[2 + rnd.nextInt(5)][];
+            double[] weights = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = randomList(rnd, universe, 0.05 + rnd.nextDouble() * 0.5);
+                weights[i] = 0.5 + rnd.nextDouble() * 3;
+            }
+            double[] shared = shared(lists, weights, universe);
+            double step = rnd.nextDouble() * 0.2;
+
+            // each visit raises the need by step, like a top-K whose floor goes up
+            var visited = new ArrayList<Integer>();
+            new MaxScore(lists, weights).traverse(0.1, (ord, s) -> {
+                visited.add(ord);
+                return 0.1 + step * visited.size();
+            });
+            var expected = new ArrayList<Integer>();
+            double need = 0.1;
+            for (int ord = 0; ord < universe; ord++) {
+                if (shared[ord] >= need) {
+                    expected.add(ord);
+                    need = 0.1 + step * expected.size();
+                }
+            }
+            assertThat(visited).isEqualTo(expected);
+        }
+    }
+
+    private static double[] shared(int[][] lists, double[] weights, int universe) {
+        double[] shared = new double[universe];
+        for (int i = 0; i < lists.length; i++) {
+            for (int ord : lists[i])
+                shared[ord] += weights[i];
+        }
+        return shared;
+    }
+
+    private static int[] randomList(Random rnd, int universe, double density) {
+        var out = new ArrayList<Integer>();
+        for (int ord = 0; ord < universe; ord++) {
+            if (rnd.nextDouble() < density)
+                out.add(ord);
+        }
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
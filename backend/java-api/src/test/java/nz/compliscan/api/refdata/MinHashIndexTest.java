@@ -0,0 +1,72 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static nz.compliscan.api.refdata.ScreeningSnapshot.ofacEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashIndexTest {
+
+    private static List<String> randomTokens(Random rnd, int n) {
+        var out = new ArrayList<String>();
+        while (out.size() < n) {
+            String t = "t" + rnd.nextInt(100_000);
+            if (!out.contains(t))
+                out.add(t);
+        }
+        return out;
+    }
+
+    @Test
+    void sameTokenSet_alwaysCollides() {
+        var idx = new ScreeningIndex(List.of(
+                ofacEntry(new SanctionEntry("OFAC:SDN", "Global Trading Holdings Ltd", "", "", "o0")),
+                ofacEntry(new SanctionEntry("OFAC:SDN", "Ivan Petrov", "", "", "o1"))));
+
+        assertThat(idx.minHash().candidates(Set.of("ltd", "holdings", "trading", "global"))).containsExactly(0);
+        assertThat(idx.minHash().candidates(Set.of())).isEmpty();
+    }
+
+    @Test
+    void recall_followsTheBandingCurve() {
+        var rnd = new Random(3);
+        var entries = new ArrayList<ScreeningSnapshot.Entry>();
+        var queries = new ArrayList<Set<String>>();
+        for (int i = 0; i < 2000; i++) {
+            // 7 of 8 tokens shared with the query: Jaccard 7/9 = 0.78
+            var tokens = randomTokens(rnd, 8);
+            entries.add(ofacEntry(new SanctionEntry("OFAC:SDN", String.join(" ", tokens), "", "", "o" + i)));
+            var q = new HashSet<>(tokens.subList(0, 7));
+            q.add("q" + i);
+            queries.add(q);
+        }
+        var idx = new ScreeningIndex(entries);
+
+        int found = 0, unrelated = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            int[] cands = idx.minHash().candidates(queries.get(i));
+            if (Arrays.binarySearch(cands, i) >= 0)
+                found++;
+            unrelated += cands.length - (Arrays.binarySearch(cands, i) >= 0 ? 1 : 0);
+        }
+        // 1 - (1 - 0.78^4)^16 = 0.9993
+        assertThat(found).isGreaterThanOrEqualTo(1990);
+        assertThat(unrelated).isLessThan(20);
+    }
+
+    @Test
+    void removedEntries_areNotCandidates() {
+        var idx = new ScreeningIndex(List.of(
+                ofacEntry(new SanctionEntry("OFAC:SDN", "Ivan Petrov", "", "", "o0")),
+                ofacEntry(new SanctionEntry("OFAC:SDN", "Kim Jong", "", "", "o1"))))
+                .withChanges(new int[] { 0 },
+                        List.of(ofacEntry(new SanctionEntry("OFAC:SDN", "Petrov Ivan", "", "", "o2"))));
+
+        int[] cands = idx.minHash().candidates(Set.of("ivan", "petrov"));
+        assertThat(cands).hasSize(1);
+        assertThat(idx.columns().uid(cands[0])).isEqualTo("o2");
+    }
+}
@@ -0,0 +1,59 @@
+package nz.compliscan.api.refdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameToolsTest {
+
+    // the original regex normalizer, which the single-pass one must match exactly
+    static String reference(String s) {
+        if (s == null)
+            return "";
+        String x = Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        return x.replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
+    }
+
+    private static final String[] SAMPLES = { "José María O'Brien-García", "  ZARQAWI,\tAbu  Musab ", "Ærøskøbing ﬁnance",
+            "İstanbul Kelvin K", "Nguyễn Thị Minh Khai", "Владимир Путин", "金正恩", "straße", "á̧b",
+            "𝐀bc 😀 x", "\uD800lone", "ǅemal Ǆ", "½ ⑴ ℌ", " nbsp em\u000Bvt", "", " ", "-" };
+
+    @Test
+    void matchesTheRegexNormalizer() {
+        assertThat(NameTools.normalize(null)).isEqualTo("");
+        for (String s : SAMPLES)
+            assertThat(NameTools.normalize(s)).as(s).isEqualTo(reference(s));
+    }
+
+    @Test
+    void everyBmpCharacter_matchesTheRegexNormalizer() {
+        for (int c = 0; c <= 0xFFFF; c++) {
+            String s = "x" + (char) c + "y" + (char) c;
+            assertThat(NameTools.normalize(s)).as("U+%04X", c).isEqualTo(reference(s));
+        }
+    }
+
+    @Test
+    void randomStrings_matchTheRegexNormalizer() {
+        var rnd = new Random(11);
+        // mostly ASCII and Latin, some marks, other scripts and surrogates
+        int[][] ranges = { { 0x20, 0x7E }, { 0x20, 0x7E }, { 0x00, 0x1F }, { 0xA0, 0x24F }, { 0x300, 0x36F },
+                { 0x370, 0x4FF }, { 0x1E00, 0x1EFF }, { 0x2000, 0x2BFF }, { 0xAC00, 0xD7A3 }, { 0xD800, 0xDFFF },
+                { 0xF900, 0xFFFF } };
+        for (int t = 0; t < 50_000; t++) {
+            var sb = new StringBuilder();
+            for (int i = 0, n = rnd.nextInt(20); i < n; i++) {
+                int[] r = ranges[rnd.nextInt(ranges.length)];
+                sb.append((char) (r[0] + rnd.nextInt(r[1] - r[0] + 1)));
+            }
+            String s = sb.toString();
+            assertThat(NameTools.normalize(s)).as(s).isEqualTo(reference(s));
+        }
+    }
+}
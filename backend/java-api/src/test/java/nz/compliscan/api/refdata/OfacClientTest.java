@@ -0,0 +1,118 @@
+package nz.compliscan.api.refdata;
+
+import com.sun.net.httpserver.HttpServer;
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Joining the SDN and Consolidated alias files onto their lists, against a
+ * local HTTP stub.
+ */
+class OfacClientTest {
+
+    private HttpServer server;
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private RefdataProperties props;
+
+    @BeforeEach
+    void setup() throws IOException {
+        files.put("/sdn.csv", "ent_num,SDN_Name,Program,SDN_Type\n36,AEROCARIBBEAN AIRLINES,CUBA,entity\n"
+                + "173,ANGLO-CARIBBEAN CO LTD,CUBA,entity\n");
+        files.put("/alt.csv", "ent_num,alt_num,alt_type,alt_name\n36,12,aka,AERO-CARIBBEAN\n"
+                + "36,13,aka,AEROCARIBBEAN AIRLINES CO\n");
+        files.put("/cons.csv", "ent_num,SDN_Name,Program,SDN_Type\n36,SOME CONSOLIDATED NAME,NS-PLC,entity\n");
+        files.put("/cons_alt.csv", "ent_num,alt_num,alt_type,alt_name\n");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", ex -> {
+            String body = files.get(ex.getRequestURI().getPath());
+            if (body == null) {
+                ex.sendResponseHeaders(404, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                ex.sendResponseHeaders(200, bytes.length);
+                ex.getResponseBody().write(bytes);
+            }
+            ex.close();
+        });
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        props = new RefdataProperties();
+        props.setOfacSdnUrl(base + "/sdn.csv");
+        props.setOfacSdnAltUrl(base + "/alt.csv");
+        props.setOfacConsolidatedUrl(base + "/cons.csv");
+        props.setOfacConsolidatedAltUrl(base + "/cons_alt.csv");
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void aliases_areJoinedOnUidWithinTheirOwnList() {
+        var fetched = new OfacClient(WebClient.create(), props).fetch(false);
+
+        assertThat(fetched.rows()).hasSize(3);
+        var sdn36 = fetched.rows().get(0);
+        assertThat(sdn36.uid()).isEqualTo("36");
+        assertThat(sdn36.aliases()).containsExactly("AERO-CARIBBEAN", "AEROCARIBBEAN AIRLINES CO");
+        assertThat(fetched.rows().get(1).aliases()).isEmpty();
+        // same uid on the Consolidated list, but SDN aliases do not carry over
+        assertThat(fetched.rows().get(2).aliases()).isEmpty();
+        assertThat(fetched.sources()).extracting(SourceFetch::source)
+                .containsExactly("OFAC:SDN", "OFAC:Consolidated", "OFAC:SDN alt", "OFAC:Consolidated alt");
+    }
+
+    @Test
+    void treasuryAliasFiles_withoutHeaderRow_areJoined() {
+        // the layout Treasury publishes: no header, -0- for empty, a trailing EOF marker
+        files.put("/alt.csv", "36,12,\"aka\",\"AERO-CARIBBEAN\",-0- \r\n"
+                + "36,13,\"aka\",\"AEROCARIBBEAN AIRLINES CO\",-0- \r\n"
+                + "173,14,\"fka\",-0-,-0- \r\n\u001a");
+        files.put("/cons_alt.csv", "36,20,\"aka\",\"CONSOLIDATED ALIAS\",\"remark\"\r\n\u001a");
+
+        var fetched = new OfacClient(WebClient.create(), props).fetch(false);
+
+        assertThat(fetched.rows().get(0).aliases()).containsExactly("AERO-CARIBBEAN", "AEROCARIBBEAN AIRLINES CO");
+        assertThat(fetched.rows().get(1).aliases()).isEmpty();
+        assertThat(fetched.rows().get(2).aliases()).containsExactly("CONSOLIDATED ALIAS");
+        assertThat(fetched.sources()).extracting(SourceFetch::status).containsOnly(SourceFetch.Status.FETCHED);
+    }
+
+    @Test
+    void aliasFileWithoutUidOrNameColumn_isFailed() {
+        files.put("/alt.csv", "entity,alias\nAEROCARIBBEAN AIRLINES,AERO-CARIBBEAN\n");
+
+        var fetched = new OfacClient(WebClient.create(), props).fetch(false);
+
+        assertThat(fetched.rows().get(0).aliases()).isEmpty();
+        assertThat(fetched.sources().get(2).status()).isEqualTo(SourceFetch.Status.FAILED);
+        assertThat(fetched.sources().get(2).error()).contains("no uid and alias name columns");
+    }
+
+    @Test
+    void failedAliasFile_keepsSeededAliases() {
+        var client = new OfacClient(WebClient.create(), props);
+        client.seed(List.of(new SanctionEntry("OFAC:SDN", "AEROCARIBBEAN AIRLINES", "CUBA", "entity", "36",
+                List.of("AERO-CARIBBEAN"))));
+        files.remove("/alt.csv");
+
+        var fetched = client.fetch(false);
+
+        assertThat(fetched.rows().get(0).aliases()).containsExactly("AERO-CARIBBEAN");
+        assertThat(fetched.sources().get(2).status()).isEqualTo(SourceFetch.Status.FAILED);
+    }
+}
@@ -0,0 +1,49 @@
+package nz.compliscan.api.refdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrdinalSetTest {
+
+    @Test
+    void sparseAndDenseSets_matchBitSet() {
+        var rnd = new Random(13);
+        int universe = 5000;
+        for (int t = 0; t < 200; t++) {
+            // densities on both sides of the one-in-32 switch
+            BitSet a = random(rnd, universe, rnd.nextBoolean() ? 0.01 : 0.3);
+            BitSet b = random(rnd, universe, rnd.nextBoolean() ? 0.01 : 0.3);
+            var sa = of(a, universe);
+            var sb = of(b, universe);
+            assertThat(sa.toArray()).isEqualTo(a.stream().toArray());
+            assertThat(sa.cardinality()).isEqualTo(a.cardinality());
+
+            var both = (BitSet) a.clone();
+            both.and(b);
+            var and = sa.and(sb);
+            assertThat(and.toArray()).isEqualTo(both.stream().toArray());
+            assertThat(and.cardinality()).isEqualTo(both.cardinality());
+            assertThat(sa.filter(b.stream().toArray())).isEqualTo(both.stream().toArray());
+            for (int ord = 0; ord < universe; ord += 97)
+                assertThat(sa.contains(ord)).isEqualTo(a.get(ord));
+        }
+    }
+
+    private static OrdinalSet of(BitSet bits, int universe) {
+        int[] ords = bits.stream().toArray();
+        return OrdinalSet.of(ords, ords.length, universe);
+    }
+
+    private static BitSet random(Random rnd, int universe, double density) {
+        var bits = new BitSet(universe);
+        for (int i = 0; i < universe; i++) {
+            if (rnd.nextDouble() < density)
+                bits.set(i);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,154 @@
+package nz.compliscan.api.refdata;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conditional, streaming fetching against a local HTTP stub that honours
+ * If-None-Match and can fail or cut a body short on demand.
+ */
+class PepClientTest {
+
+    private HttpServer server;
+    private PepClient client;
+    private volatile String body;
+    private volatile String etag;
+    private volatile int failWith; // 0 = serve normally, 500 = error, -1 = cut the body short
+    private final List<String> ifNoneMatch = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        body = "id,name,country\nq1,Ivan Petrov,ru\nq2,Maria Garcia,nz\n";
+        etag = "\"v1\"";
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/peps.csv", this::serve);
+        server.start();
+
+        var props = new RefdataProperties();
+        props.setPepCsvUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/peps.csv");
+        client = new PepClient(WebClient.create(), props);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange ex) throws IOException {
+        String inm = ex.getRequestHeaders().getFirst("If-None-Match");
+        synchronized (ifNoneMatch) {
+            ifNoneMatch.add(inm);
+        }
+        if (etag != null && etag.equals(inm)) {
+            ex.sendResponseHeaders(304, -1);
+            ex.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (failWith == 500) {
+            ex.sendResponseHeaders(500, -1);
+            ex.close();
+            return;
+        }
+        if (failWith == -1) {
+            ex.sendResponseHeaders(200, bytes.length);
+            ex.getResponseBody().write(bytes, 0, bytes.length / 2);
+            ex.close();
+            return;
+        }
+        if (etag != null)
+            ex.getResponseHeaders().set("ETag", etag);
+        ex.sendResponseHeaders(200, bytes.length);
+        ex.getResponseBody().write(bytes);
+        ex.close();
+    }
+
+    @Test
+    void notModified_reusesRowsWithoutParsing() {
+        var first = client.fetch(false);
+        assertThat(first.rows()).extracting(e -> e.uid()).containsExactly("q1", "q2");
+        assertThat(first.sources().get(0).status()).isEqualTo(SourceFetch.Status.FETCHED);
+        assertThat(first.changed()).isTrue();
+
+        var second = client.fetch(false);
+        assertThat(ifNoneMatch).containsExactly(null, "\"v1\"");
+        assertThat(second.sources().get(0).status()).isEqualTo(SourceFetch.Status.NOT_MODIFIED);
+        assertThat(second.sources().get(0).bytes()).isZero();
+        assertThat(second.rows()).isSameAs(first.rows());
+        assertThat(second.changed()).isFalse();
+    }
+
+    @Test
+    void sameBodyWithoutValidators_isUnchangedByHash() {
+        etag = null;
+        var first = client.fetch(false);
+        var second = client.fetch(false);
+
+        assertThat(second.sources().get(0).status()).isEqualTo(SourceFetch.Status.UNCHANGED);
+        assertThat(second.sources().get(0).bytes()).isEqualTo(body.length());
+        assertThat(second.rows()).isSameAs(first.rows());
+
+        body = body + "q3,Kim Jong,kp\n";
+        var third = client.fetch(false);
+        assertThat(third.sources().get(0).status()).isEqualTo(SourceFetch.Status.FETCHED);
+        assertThat(third.rows()).hasSize(3);
+    }
+
+    @Test
+    void force_skipsValidators() {
+        client.fetch(false);
+        var forced = client.fetch(true);
+
+        assertThat(ifNoneMatch).containsExactly(null, null);
+        assertThat(forced.sources().get(0).status()).isEqualTo(SourceFetch.Status.FETCHED);
+        assertThat(forced.changed()).isTrue();
+    }
+
+    @Test
+    void failures_keepLastGoodRowsAndSayWhy() {
+        var good = client.fetch(false);
+
+        failWith = 500;
+        var error = client.fetch(true);
+        assertThat(error.sources().get(0).status()).isEqualTo(SourceFetch.Status.FAILED);
+        assertThat(error.sources().get(0).error()).isNotBlank();
+        assertThat(error.rows()).isSameAs(good.rows());
+        assertThat(error.changed()).isFalse();
+
+        failWith = -1;
+        var truncated = client.fetch(true);
+        assertThat(truncated.sources().get(0).status()).isEqualTo(SourceFetch.Status.FAILED);
+        assertThat(truncated.sources().get(0).bytes()).isLessThan(body.length());
+        assertThat(truncated.rows()).isSameAs(good.rows());
+    }
+
+    @Test
+    void aliases_areSplitFromTheirColumn() {
+        body = "id,name,aliases,country\nq1,Ivan Petrov,Ivan Petroff; Иван Петров ;,ru\nq2,Maria Garcia,,nz\n";
+        var rows = client.fetch(false).rows();
+
+        assertThat(rows.get(0).aliases()).containsExactly("Ivan Petroff", "Иван Петров");
+        assertThat(rows.get(1).aliases()).isEmpty();
+    }
+
+    @Test
+    void failureOnFirstFetch_yieldsNoRows() {
+        failWith = 500;
+        var r = client.fetch(false);
+
+        assertThat(r.rows()).isEmpty();
+        assertThat(r.sources().get(0).status()).isEqualTo(SourceFetch.Status.FAILED);
+    }
+}
@@ -0,0 +1,115 @@
+package nz.compliscan.api.refdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Standalone MVC test of the batch endpoint against a mocked ScreeningService.
+ */
+class RefdataControllerTest {
+
+    private ScreeningService service;
+    private MockMvc mvc;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() throws Exception {
+        service = Mockito.mock(ScreeningService.class);
+        Mockito.when(service.isReady()).thenReturn(true);
+        Mockito.doAnswer(inv -> {
+            List<ScreeningService.BatchItem> items = inv.getArgument(0);
+            BiConsumer<Integer, ScreeningService.ScreenResult> sink = inv.getArgument(2);
+            for (int i = items.size() - 1; i >= 0; i--)
+                sink.accept(i, new ScreeningService.ScreenResult(items.get(i).name(), List.of(), List.of(), "LOW"));
+            return null;
+        }).when(service).screenBatch(any(), anyInt(), any(BiConsumer.class));
+        mvc = MockMvcBuilders.standaloneSetup(new RefdataController(service, new ObjectMapper())).build();
+    }
+
+    @Test
+    void batch_jsonArray_streamsOneLinePerItem() throws Exception {
+        MvcResult started = mvc.perform(post("/refdata/screen/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"Ivan Petrov\", {\"name\": \"Maria Garcia\", \"country\": \"NZ\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        var lines = body.strip().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"index\":1").contains("Maria Garcia");
+        assertThat(lines[1]).contains("\"index\":0").contains("Ivan Petrov");
+        Mockito.verify(service).screenBatch(eq(List.of(
+                new ScreeningService.BatchItem("Ivan Petrov", null),
+                new ScreeningService.BatchItem("Maria Garcia", "NZ"))), eq(10), any());
+    }
+
+    @Test
+    void batch_ndjson_acceptsOneItemPerLine() throws Exception {
+        MvcResult started = mvc.perform(post("/refdata/screen/batch?limit=3")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("\"Ivan Petrov\"\n\n{\"name\":\"Kim Jong\"}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        Mockito.verify(service).screenBatch(eq(List.of(
+                new ScreeningService.BatchItem("Ivan Petrov", null),
+                new ScreeningService.BatchItem("Kim Jong", null))), eq(3), any());
+    }
+
+    @Test
+    void batch_rejectsItemsWithoutName() throws Exception {
+        mvc.perform(post("/refdata/screen/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"country\": \"NZ\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void screening_isUnavailableUntilWarmedUp() throws Exception {
+        Mockito.when(service.isReady()).thenReturn(false);
+        Mockito.when(service.readiness()).thenReturn(ScreeningService.Readiness.LOADING);
+
+        mvc.perform(get("/refdata/screen").param("name", "Ivan Petrov"))
+                .andExpect(status().isServiceUnavailable());
+        mvc.perform(post("/refdata/screen/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"Ivan Petrov\"]"))
+                .andExpect(status().isServiceUnavailable());
+        Mockito.verify(service, Mockito.never()).screenByName(any(), any(ScreeningService.Filter.class), anyInt());
+    }
+
+    @Test
+    void screen_passesFilters() throws Exception {
+        var none = new ScreeningService.ScreenResult("Ivan Petrov", List.of(), List.of(), "LOW");
+        Mockito.when(service.screenByName(any(), any(ScreeningService.Filter.class), anyInt())).thenReturn(none);
+
+        mvc.perform(get("/refdata/screen").param("name", "Ivan Petrov").param("type", "Individual")
+                .param("program", "SDGT").param("limit", "5"))
+                .andExpect(status().isOk());
+        Mockito.verify(service).screenByName("Ivan Petrov",
+                new ScreeningService.Filter(null, "individual", "sdgt", null), 5);
+    }
+}
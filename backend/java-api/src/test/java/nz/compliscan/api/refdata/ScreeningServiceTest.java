@@ -0,0 +1,589 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.PepEntry;
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the indexed screening path against a brute-force scan over the raw
+ * lists, using the same scoring as the original implementation.
+ */
+class ScreeningServiceTest {
+
+    private static final String[] WORDS = {
+            "mohammed", "muhamad", "ali", "hassan", "hasan", "abdullah", "al", "rashid", "ivan",
+            "petrov", "petrova", "global", "trading", "holdings", "ltd", "co", "kim", "jong",
+            "maria", "garcia", "josé", "o'brien", "zarqawi", "abu", "bank", "of", "national" };
+
+    private List<SanctionEntry> ofac;
+    private List<PepEntry> peps;
+    private ScreeningService svc;
+    private OfacClient ofacClient;
+    private PepClient pepClient;
+    private Random rnd;
+
+    @BeforeEach
+    void setup() {
+        rnd = new Random(42);
+        ofac = new ArrayList<>();
+        peps = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            ofac.add(new SanctionEntry(i % 2 == 0 ? "OFAC:SDN" : "OFAC:Consolidated", randomName(),
+                    "SDGT", i % 3 == 0 ? "individual" : "entity", "o" + i));
+            peps.add(new PepEntry(randomName(), i % 4 == 0 ? "" : "nz", i % 5 == 0 ? "" : "Minister",
+                    "peps", "p" + i));
+        }
+
+        ofacClient = Mockito.mock(OfacClient.class);
+        pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(ofac));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        svc = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+    }
+
+    @Test
+    void indexedScreening_matchesBruteForce() {
+        var queries = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            queries.add(ofac.get(rnd.nextInt(ofac.size())).name());
+            queries.add(shuffled(peps.get(rnd.nextInt(peps.size())).name()));
+            queries.add(randomName());
+        }
+        queries.add("");
+        queries.add("   ");
+
+        for (String q : queries) {
+            var r = svc.screenByName(q);
+            assertThat(r.ofacMatches()).as("OFAC for '%s'", q)
+                    .isEqualTo(bruteForceOfac(q, 10));
+            assertThat(r.pepMatches()).as("PEP for '%s'", q)
+                    .isEqualTo(bruteForcePep(q, 10));
+        }
+    }
+
+    @Test
+    void exactName_isHighRiskWithFullScore() {
+        var e = ofac.get(17);
+        var r = svc.screenByName(e.name().toLowerCase(Locale.ROOT));
+
+        assertThat(r.risk()).isEqualTo("HIGH");
+        assertThat(r.ofacMatches()).isNotEmpty();
+        assertThat(r.ofacMatches().get(0).score()).isEqualTo(1.0);
+    }
+
+    @Test
+    void limit_keepsBestKOrderedLikeBruteForce() {
+        for (int i = 0; i < 50; i++) {
+            String q = ofac.get(rnd.nextInt(ofac.size())).name();
+            var r = svc.screenByName(q, 3);
+            assertThat(r.ofacMatches()).isEqualTo(bruteForceOfac(q, 3));
+            assertThat(r.pepMatches()).isEqualTo(bruteForcePep(q, 3));
+        }
+    }
+
+    @Test
+    void parallelPartitions_matchSequentialScan() {
+        var props = new RefdataProperties();
+        props.setParallelScreenThreshold(1); // partition every list
+        props.setScreeningParallelism(4);
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(ofac));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var parallel = started(new ScreeningService(ofacClient, pepClient, props));
+
+        for (int i = 0; i < 100; i++) {
+            String q = i % 2 == 0 ? ofac.get(rnd.nextInt(ofac.size())).name() : randomName();
+            assertThat(parallel.screenByName(q)).isEqualTo(svc.screenByName(q));
+        }
+    }
+
+    @Test
+    void batch_deduplicatesAndMatchesSingleScreens() throws Exception {
+        var items = new ArrayList<ScreeningService.BatchItem>();
+        for (int i = 0; i < 60; i++) {
+            String name = peps.get(rnd.nextInt(peps.size())).name();
+            items.add(new ScreeningService.BatchItem(name, i % 3 == 0 ? "NZ" : null));
+            items.add(new ScreeningService.BatchItem(name.toUpperCase(Locale.ROOT) + "  ", null));
+        }
+
+        var got = new HashMap<Integer, ScreeningService.ScreenResult>();
+        svc.screenBatch(items, 10, got::put);
+
+        assertThat(got).hasSize(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            assertThat(got.get(i)).isEqualTo(svc.screenByName(item.name(), item.country(), 10));
+        }
+    }
+
+    @Test
+    void countryFilter_onlyNarrowsPepMatches() {
+        for (int i = 0; i < 50; i++) {
+            String q = peps.get(rnd.nextInt(peps.size())).name();
+            var all = svc.screenByName(q, (String) null, 10);
+            var nz = svc.screenByName(q, "nz", 10);
+
+            assertThat(nz.ofacMatches()).isEqualTo(all.ofacMatches());
+            assertThat(nz.pepMatches()).allMatch(m -> m.extra().startsWith("nz"));
+        }
+    }
+
+    @Test
+    void filters_matchBruteForceOverTheFilteredRows() {
+        // a rare second program, so one filter below is small enough to be scored as is
+        var rows = new ArrayList<SanctionEntry>();
+        for (int i = 0; i < ofac.size(); i++) {
+            var e = ofac.get(i);
+            rows.add(new SanctionEntry(e.source(), e.name(), i % 40 == 0 ? "IRAN] [SDGT" : "SDGT", e.type(), e.uid()));
+        }
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(rows));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var filtered = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        var sdnIndividuals = new ScreeningService.Filter(null, "Individual", "sdgt", "OFAC:SDN");
+        var iran = new ScreeningService.Filter(" NZ ", null, "IRAN", null);
+        for (int i = 0; i < 60; i++) {
+            String q = i % 2 == 0 ? rows.get(rnd.nextInt(rows.size())).name() : randomName();
+
+            var r = filtered.screenByName(q, sdnIndividuals, 10);
+            assertThat(r.ofacMatches()).isEqualTo(bruteForceOfac(rows.stream()
+                    .filter(e -> e.source().equals("OFAC:SDN") && e.type().equals("individual")).toList(),
+                    q, 10, NameTools::jw));
+            // the source names another list, so no PEP entry passes
+            assertThat(r.pepMatches()).isEmpty();
+
+            r = filtered.screenByName(q, iran, 10);
+            assertThat(r.ofacMatches()).isEqualTo(bruteForceOfac(rows.stream()
+                    .filter(e -> e.program().startsWith("IRAN")).toList(), q, 10, NameTools::jw));
+            // PEP carries no program, so only the country narrows it
+            assertThat(r.pepMatches()).isEqualTo(filtered.screenByName(q, "nz", 10).pepMatches());
+        }
+        filtered.shutdown();
+    }
+
+    @Test
+    void resultCache_servesRepeatsUntilReload() {
+        var e = ofac.get(5);
+        var first = svc.screenByName(e.name());
+        var again = svc.screenByName(e.name().toUpperCase(Locale.ROOT));
+
+        assertThat(again.ofacMatches()).isEqualTo(first.ofacMatches());
+        assertThat(again.inputName()).isEqualTo(e.name().toUpperCase(Locale.ROOT));
+        assertThat(svc.stats().resultCache().hits()).isEqualTo(1);
+
+        // the entry disappears upstream; the cached HIGH must not survive the reload
+        var without = new ArrayList<>(ofac);
+        without.removeIf(x -> NameTools.normalize(x.name()).equals(NameTools.normalize(e.name())));
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(without));
+        svc.reload();
+
+        var after = svc.screenByName(e.name());
+        assertThat(after.ofacMatches()).noneMatch(m -> m.uid().equals(e.uid()));
+        assertThat(svc.stats().resultCache().entries()).isEqualTo(1);
+    }
+
+    @Test
+    void deltaReload_matchesFullRebuild() {
+        var curOfac = new ArrayList<>(ofac);
+        var curPeps = new ArrayList<>(peps);
+        int next = 3000;
+        // enough rounds to run on a patched index and then through compaction
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < 50; i++)
+                curOfac.remove(rnd.nextInt(curOfac.size()));
+            for (int i = 0; i < 30; i++) {
+                int at = rnd.nextInt(curPeps.size());
+                var e = curPeps.get(at);
+                curPeps.set(at, new PepEntry(randomName(), e.country(), e.role(), e.source(), e.uid()));
+            }
+            for (int i = 0; i < 40; i++, next++)
+                curOfac.add(new SanctionEntry("OFAC:SDN", randomName(), "SDGT", "entity", "o" + next));
+
+            when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(List.copyOf(curOfac)));
+            when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(List.copyOf(curPeps)));
+            var delta = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+            svc.reload(false);
+
+            var reloaded = svc.stats().lastReload();
+            assertThat(reloaded.mode()).isEqualTo("DELTA");
+            assertThat(reloaded.ofac()).isEqualTo(new ScreeningSnapshot.Changes(40, 50, 0, false));
+            assertThat(reloaded.pep().modified()).isLessThanOrEqualTo(30).isPositive();
+            assertThat(svc.stats().ofacCount()).isEqualTo(curOfac.size());
+
+            for (int i = 0; i < 40; i++) {
+                String q = i % 2 == 0 ? curOfac.get(rnd.nextInt(curOfac.size())).name() : randomName();
+                assertThat(svc.screenByName(q, 100)).isEqualTo(delta.screenByName(q, 100));
+                assertThat(svc.screenByName(q)).isEqualTo(delta.screenByName(q));
+            }
+        }
+    }
+
+    @Test
+    void deltaReload_keepsTheSameHitsAmongTiesAtTheCutOff() {
+        // 30 entries under one name tie at every score; a delta moves the modified ones to new ordinals
+        var rows = new ArrayList<>(ofac);
+        for (int i = 0; i < 30; i++)
+            rows.add(new SanctionEntry(i % 2 == 0 ? "OFAC:SDN" : "OFAC:Consolidated", "Ivan Ivanovich Petrenko",
+                    "SDGT", "individual", "t" + i));
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(List.copyOf(rows)));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var patched = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        for (int i = rows.size() - 30; i < rows.size(); i += 3) {
+            var e = rows.get(i);
+            rows.set(i, new SanctionEntry(e.source(), e.name(), "IRAN", e.type(), e.uid()));
+        }
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(List.copyOf(rows)));
+        patched.reload(false);
+        assertThat(patched.stats().lastReload().ofac().modified()).isEqualTo(10);
+        var full = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        for (String q : List.of("Ivan Ivanovich Petrenko", "IVAN IVANOVICH PETRENKO", "Ivanovich Petrenko Ivan")) {
+            var got = patched.screenByName(q);
+            assertThat(got.ofacMatches()).hasSize(ScreeningService.DEFAULT_LIMIT);
+            assertThat(got).isEqualTo(full.screenByName(q));
+            assertThat(got.ofacMatches()).isEqualTo(bruteForceOfac(rows, q, ScreeningService.DEFAULT_LIMIT,
+                    NameTools::jw));
+        }
+        patched.shutdown();
+        full.shutdown();
+    }
+
+    @Test
+    void deltaReload_withoutChangesKeepsVersion() {
+        svc.screenByName(ofac.get(3).name());
+        svc.reload(false);
+
+        var reloaded = svc.stats().lastReload();
+        assertThat(reloaded.ofac().any()).isFalse();
+        assertThat(reloaded.pep().any()).isFalse();
+        svc.screenByName(ofac.get(3).name());
+        assertThat(svc.stats().resultCache().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void reload_isNoOpWhenNoSourceChanged() {
+        var sdn = new SourceFetch("OFAC:SDN", "http://sdn", SourceFetch.Status.NOT_MODIFIED, ofac.size(), 0, 5, null);
+        var pep = new SourceFetch("PEP", "http://pep", SourceFetch.Status.UNCHANGED, peps.size(), 123, 7, null);
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(ofac, List.of(sdn))));
+        when(pepClient.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(peps, List.of(pep))));
+        // the startup load still builds, as there is no snapshot to keep yet
+        var noop = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+        long loaded = noop.stats().lastLoadedMs();
+        assertThat(noop.stats().ofacCount()).isEqualTo(ofac.size());
+
+        noop.reload(false);
+
+        var reloaded = noop.stats().lastReload();
+        assertThat(reloaded.mode()).isEqualTo("UNCHANGED");
+        assertThat(reloaded.sources()).containsExactly(sdn, pep);
+        assertThat(noop.stats().lastLoadedMs()).isEqualTo(loaded);
+        noop.shutdown();
+    }
+
+    @Test
+    void reload_fetchesSourcesConcurrently() {
+        // each fetch waits for the other to start, so a sequential reload would time out
+        var bothStarted = new CountDownLatch(2);
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenAnswer(inv -> CompletableFuture.supplyAsync(
+                () -> rendezvous(bothStarted, ofac), inv.<Executor>getArgument(1)));
+        when(pepClient.fetch(anyBoolean(), any())).thenAnswer(inv -> CompletableFuture.supplyAsync(
+                () -> rendezvous(bothStarted, peps), inv.<Executor>getArgument(1)));
+
+        var concurrent = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        assertThat(concurrent.stats().ofacCount()).isEqualTo(ofac.size());
+        assertThat(concurrent.stats().pepCount()).isEqualTo(peps.size());
+        assertThat(concurrent.stats().lastReload().fetchMs()).isLessThan(5_000);
+        concurrent.shutdown();
+    }
+
+    @Test
+    void osaScorer_matchesBruteForce() {
+        var props = new RefdataProperties();
+        props.setOfacNameScorer(NameScorer.OSA);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var osa = started(new ScreeningService(ofacClient, pepClient, props));
+        ToDoubleBiFunction<String, String> similarity = (a, b) -> EditDistance.similarity(a.toCharArray(), 0,
+                a.length(), b.toCharArray(), 0, b.length(), true, 0);
+
+        for (int i = 0; i < 100; i++) {
+            String q = i % 2 == 0 ? ofac.get(rnd.nextInt(ofac.size())).name() : randomName();
+            var r = osa.screenByName(q);
+            assertThat(r.ofacMatches()).as("OFAC for '%s'", q).isEqualTo(bruteForceOfac(q, 10, similarity));
+            // the PEP list keeps the default scorer
+            assertThat(r.pepMatches()).isEqualTo(svc.screenByName(q).pepMatches());
+        }
+        osa.shutdown();
+    }
+
+    @Test
+    void idfOverlap_matchesBruteForce() {
+        var props = new RefdataProperties();
+        props.setOfacIdfOverlap(true);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var weighted = started(new ScreeningService(ofacClient, pepClient, props));
+
+        for (int i = 0; i < 200; i++) {
+            String q = i % 2 == 0 ? ofac.get(rnd.nextInt(ofac.size())).name() : randomName();
+            var got = weighted.screenByName(q, 100).ofacMatches();
+            var want = bruteForceOfacIdf(q, 100);
+            // weights are summed in another order, so near-ties may swap: compare rounded scores and the hit set
+            assertThat(got.stream().map(m -> Math.round(m.score() * 1e9)).toList()).as("OFAC for '%s'", q)
+                    .isEqualTo(want.stream().map(m -> Math.round(m.score() * 1e9)).toList());
+            if (want.size() < 100)
+                assertThat(got).extracting(ScreeningService.Match::uid)
+                        .containsExactlyInAnyOrderElementsOf(want.stream().map(ScreeningService.Match::uid).toList());
+            // the PEP list keeps plain overlap
+            assertThat(weighted.screenByName(q).pepMatches()).isEqualTo(bruteForcePep(q, 10));
+        }
+        weighted.shutdown();
+    }
+
+    @Test
+    void commonTokenInputs_matchBruteForce() {
+        // every pair of the most frequent words: large postings the traversal has to skip through
+        for (String a : List.of("mohammed", "ali", "al", "abu"))
+            for (String b : List.of("hassan", "ali", "bank", "of")) {
+                var r = svc.screenByName(a + " " + b, 5);
+                assertThat(r.ofacMatches()).as("OFAC for '%s %s'", a, b).isEqualTo(bruteForceOfac(a + " " + b, 5));
+                assertThat(r.pepMatches()).isEqualTo(bruteForcePep(a + " " + b, 5));
+            }
+    }
+
+    @Test
+    void cleanNameCheck_neverDropsAHit() {
+        var before = svc.stats().cleanNames();
+        for (int i = 0; i < 150; i++) {
+            String q = switch (i % 3) {
+            case 0 -> "customer " + Integer.toString(rnd.nextInt(1 << 20), 36) + " smith";
+            case 1 -> randomName();
+            default -> ofac.get(rnd.nextInt(ofac.size())).name() + "x";
+            };
+            var r = svc.screenByName(q);
+            assertThat(r.ofacMatches()).as("OFAC for '%s'", q).isEqualTo(bruteForceOfac(q, 10));
+            assertThat(r.pepMatches()).as("PEP for '%s'", q).isEqualTo(bruteForcePep(q, 10));
+        }
+        var after = svc.stats().cleanNames();
+        // repeats are served by the result cache without a check
+        assertThat(after.checked() - before.checked()).isBetween(1L, 150L);
+        assertThat(after.shortCircuited()).isGreaterThan(before.shortCircuited());
+    }
+
+    @Test
+    void aliases_matchOncePerEntryWithTheBestName() {
+        var rows = List.of(
+                new SanctionEntry("OFAC:SDN", "Abu Musab al Zarqawi", "SDGT", "individual", "a1",
+                        List.of("Ahmad Fadil Nazal al Khalayleh", "Abu Musab Zarqawi", "ABU MUSAB AL-ZARQAWI")),
+                new SanctionEntry("OFAC:SDN", "Global Trading Holdings Ltd", "SDGT", "entity", "a2"));
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(rows));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(List.<PepEntry>of()));
+        var aliased = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        var byAlias = aliased.screenByName("Ahmad Fadil Nazal Al-Khalayleh").ofacMatches();
+        assertThat(byAlias).hasSize(1);
+        assertThat(byAlias.get(0).uid()).isEqualTo("a1");
+        assertThat(byAlias.get(0).display()).isEqualTo("Abu Musab al Zarqawi");
+        assertThat(byAlias.get(0).alias()).isEqualTo("Ahmad Fadil Nazal al Khalayleh");
+        assertThat(byAlias.get(0).score()).isEqualTo(1.0);
+
+        // close to the primary name and to one alias: still one row, and the primary name wins the tie
+        var byName = aliased.screenByName("abu musab al zarqawi").ofacMatches();
+        assertThat(byName).hasSize(1);
+        assertThat(byName.get(0).alias()).isNull();
+        assertThat(byName.get(0).score()).isEqualTo(1.0);
+        aliased.shutdown();
+    }
+
+    @Test
+    void readiness_followsWarmUpAndSourceFailures() {
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        when(ofacClient.fetch(anyBoolean(), any())).thenReturn(fetched(ofac));
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        var service = new ScreeningService(ofacClient, pepClient, new RefdataProperties());
+
+        assertThat(service.readiness()).isEqualTo(ScreeningService.Readiness.LOADING);
+        assertThatThrownBy(() -> service.screenByName("ivan petrov")).isInstanceOf(IllegalStateException.class);
+
+        service.warmUp();
+        assertThat(service.stats().readiness()).isEqualTo(ScreeningService.Readiness.READY);
+
+        var failed = new SourceFetch("PEP", "http://pep", SourceFetch.Status.FAILED, peps.size(), 0, 0, "timeout");
+        when(pepClient.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(peps, List.of(failed))));
+        service.reload(false);
+        assertThat(service.readiness()).isEqualTo(ScreeningService.Readiness.STALE);
+        assertThat(service.screenByName(ofac.get(0).name()).ofacMatches()).isNotEmpty();
+
+        when(pepClient.fetch(anyBoolean(), any())).thenReturn(fetched(peps));
+        service.reload(false);
+        assertThat(service.readiness()).isEqualTo(ScreeningService.Readiness.READY);
+        service.shutdown();
+    }
+
+    @Test
+    void readiness_isFailedWhenWarmUpFindsNoData() {
+        var ofacClient = Mockito.mock(OfacClient.class);
+        var pepClient = Mockito.mock(PepClient.class);
+        var down = new SourceFetch("test", "http://test", SourceFetch.Status.FAILED, 0, 0, 0, "connection refused");
+        when(ofacClient.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(List.of(), List.of(down))));
+        when(pepClient.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(List.of(), List.of(down))));
+        var service = started(new ScreeningService(ofacClient, pepClient, new RefdataProperties()));
+
+        assertThat(service.readiness()).isEqualTo(ScreeningService.Readiness.FAILED);
+        assertThat(service.isReady()).isFalse();
+        service.shutdown();
+    }
+
+    private static ScreeningService started(ScreeningService service) {
+        service.warmUp();
+        return service;
+    }
+
+    private static <T> Fetched<T> rendezvous(CountDownLatch latch, List<T> rows) {
+        latch.countDown();
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS))
+                throw new IllegalStateException("sources were fetched one after the other");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Fetched<>(rows, List.of());
+    }
+
+    private static <T> CompletableFuture<Fetched<T>> fetched(List<T> rows) {
+        return CompletableFuture.completedFuture(new Fetched<>(rows, List.of(new SourceFetch("test", "http://test",
+                SourceFetch.Status.FETCHED, rows.size(), 0, 0, null))));
+    }
+
+    // score descending, then source and uid, as TopK orders ties; the stable sort keeps list order after that
+    private static final Comparator<ScreeningService.Match> BEST_FIRST = Comparator
+            .comparingDouble(ScreeningService.Match::score).reversed()
+            .thenComparing(ScreeningService.Match::source)
+            .thenComparing(ScreeningService.Match::uid);
+
+    private List<ScreeningService.Match> bruteForceOfac(String name, int limit) {
+        return bruteForceOfac(name, limit, NameTools::jw);
+    }
+
+    private List<ScreeningService.Match> bruteForceOfac(String name, int limit,
+            ToDoubleBiFunction<String, String> similarity) {
+        return bruteForceOfac(ofac, name, limit, similarity);
+    }
+
+    private static List<ScreeningService.Match> bruteForceOfac(List<SanctionEntry> rows, String name, int limit,
+            ToDoubleBiFunction<String, String> similarity) {
+        String norm = NameTools.normalize(name);
+        var tA = NameTools.tokens(norm);
+        return rows.stream()
+                .map(e -> {
+                    String n = NameTools.normalize(e.name());
+                    double score = blend(similarity.applyAsDouble(norm, n),
+                            NameTools.tokenOverlapScore(tA, NameTools.tokens(n)));
+                    return new ScreeningService.Match(e.source(), e.uid(), e.name(), score, e.program());
+                })
+                .filter(m -> m.score() >= ScreeningService.OFAC_NAME_THRESHOLD)
+                .sorted(BEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    // token overlap weighted by ln(1 + N / df), df counted over the OFAC rows
+    private List<ScreeningService.Match> bruteForceOfacIdf(String name, int limit) {
+        var df = new HashMap<String, Integer>();
+        for (var e : ofac) {
+            for (String t : NameTools.tokens(NameTools.normalize(e.name())))
+                df.merge(t, 1, Integer::sum);
+        }
+        ToDoubleFunction<String> idf = t -> Math.log1p(ofac.size() / (double) Math.max(1, df.getOrDefault(t, 0)));
+        String norm = NameTools.normalize(name);
+        var tA = NameTools.tokens(norm);
+        double wA = tA.stream().mapToDouble(idf).sum();
+        return ofac.stream()
+                .map(e -> {
+                    String n = NameTools.normalize(e.name());
+                    var tB = NameTools.tokens(n);
+                    double wB = tB.stream().mapToDouble(idf).sum();
+                    double inter = tB.stream().filter(tA::contains).mapToDouble(idf).sum();
+                    double token = tA.isEmpty() || tB.isEmpty() ? 0 : tA.equals(tB) ? 1 : inter / (wA + wB - inter);
+                    double score = blend(NameTools.jw(norm, n), token);
+                    return new ScreeningService.Match(e.source(), e.uid(), e.name(), score, e.program());
+                })
+                .filter(m -> m.score() >= ScreeningService.OFAC_NAME_THRESHOLD)
+                .sorted(BEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    private List<ScreeningService.Match> bruteForcePep(String name, int limit) {
+        String norm = NameTools.normalize(name);
+        var tA = NameTools.tokens(norm);
+        return peps.stream()
+                .map(e -> {
+                    String n = NameTools.normalize(e.name());
+                    double score = blend(NameTools.jw(norm, n), NameTools.tokenOverlapScore(tA, NameTools.tokens(n)));
+                    String extra = e.country() + (e.country().isBlank() || e.role().isBlank() ? "" : " • ") + e.role();
+                    return new ScreeningService.Match("PEP", e.uid(), e.name(), score, extra);
+                })
+                .filter(m -> m.score() >= ScreeningService.PEP_NAME_THRESHOLD)
+                .sorted(BEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    private static double blend(double jw, double token) {
+        return (jw * (1.0 - ScreeningService.TOKEN_WEIGHT)) + (token * ScreeningService.TOKEN_WEIGHT);
+    }
+
+    private String randomName() {
+        int n = 1 + rnd.nextInt(4);
+        var sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                sb.append(rnd.nextInt(10) == 0 ? ", " : " ");
+            String w = WORDS[rnd.nextInt(WORDS.length)];
+            sb.append(rnd.nextBoolean() ? w.toUpperCase(Locale.ROOT) : w);
+        }
+        return sb.toString();
+    }
+
+    private String shuffled(String name) {
+        var parts = new ArrayList<>(Arrays.asList(name.split(" ")));
+        Collections.shuffle(parts, rnd);
+        return String.join(" ", parts);
+    }
+}
@@ -0,0 +1,163 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.PepEntry;
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
+
+/**
+ * Round trip of the on-disk snapshot, and a restart that screens from it
+ * while every upstream source is down.
+ */
+class SnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<SanctionEntry> ofac = List.of(
+            new SanctionEntry("OFAC:SDN", "Ivan Petrov", "UKRAINE-EO13660", "individual", "101",
+                    List.of("Ivan Petroff", "I. Petrov")),
+            new SanctionEntry("OFAC:SDN", "Global Trading Holdings Ltd", "SDGT", "entity", "102"),
+            new SanctionEntry("OFAC:Consolidated", "José O'Brien", "", "individual", "7"));
+    private final List<PepEntry> peps = List.of(
+            new PepEntry("Maria Garcia", "nz;au", "Minister", "peps", "q1", List.of("María García López")),
+            new PepEntry("Kim Jong Un", "kp", "", "peps", "q2"),
+            new PepEntry("Ali Hassan", "", "Governor", "peps", "q3"));
+
+    @Test
+    void roundTrip_restoresRowsAndIndexes() throws IOException {
+        var snap = ScreeningSnapshot.build(ofac, peps);
+        Path file = dir.resolve("refdata.snap");
+        SnapshotFile.write(snap, file);
+
+        var back = SnapshotFile.read(file);
+
+        assertThat(back.ofacEntries()).isEqualTo(ofac);
+        assertThat(back.pepEntries()).isEqualTo(peps);
+        assertThat(back.loadedAtMs()).isEqualTo(snap.loadedAtMs());
+        assertThat(back.version()).isGreaterThan(snap.version());
+        for (var pair : List.of(List.of(snap.ofac(), back.ofac()), List.of(snap.peps(), back.peps()))) {
+            var want = pair.get(0);
+            var got = pair.get(1);
+            assertThat(got.size()).isEqualTo(want.size());
+            for (int ord = 0; ord < want.size(); ord++) {
+                var w = want.entry(ord);
+                var g = got.entry(ord);
+                assertThat(List.of(g.source(), g.uid(), g.display(), g.extra()))
+                        .isEqualTo(List.of(w.source(), w.uid(), w.display(), w.extra()));
+                assertThat(g.norm()).isEqualTo(w.norm());
+                assertThat(g.tokens()).isEqualTo(w.tokens());
+                assertThat(g.countries()).isEqualTo(w.countries());
+                assertThat(g.type()).isEqualTo(w.type());
+                assertThat(g.programs()).isEqualTo(w.programs());
+                assertThat(g.aliases()).hasSameSizeAs(w.aliases());
+                for (int i = 0; i < w.aliases().size(); i++) {
+                    assertThat(g.aliases().get(i).display()).isEqualTo(w.aliases().get(i).display());
+                    assertThat(g.aliases().get(i).norm()).isEqualTo(w.aliases().get(i).norm());
+                    assertThat(g.aliases().get(i).tokens()).isEqualTo(w.aliases().get(i).tokens());
+                }
+                for (String t : w.tokens())
+                    assertThat(got.postings(t)).isEqualTo(want.postings(t));
+            }
+            for (String t : List.of("ivan", "petroff", "garcia", "zzyzx"))
+                assertThat(got.cleanNames().mayContain(t)).isEqualTo(want.cleanNames().mayContain(t));
+            assertThat(got.postings("petroff")).isEqualTo(want.postings("petroff"));
+            // the prebuilt token-set and attribute indexes come back as written
+            for (var tokens : List.of(Set.of("ivan", "petrov"), Set.of("kim", "jong", "un"), Set.of("nobody")))
+                assertThat(got.sameTokens(tokens)).isEqualTo(want.sameTokens(tokens));
+            for (var filter : List.of(new ScreeningService.Filter("nz", null, null, null),
+                    new ScreeningService.Filter(null, "individual", "sdgt", null),
+                    new ScreeningService.Filter(null, null, null, "ofac:consolidated"))) {
+                var w = want.matching(filter);
+                var g = got.matching(filter);
+                assertThat(g == null ? null : g.toArray()).isEqualTo(w == null ? null : w.toArray());
+            }
+        }
+    }
+
+    @Test
+    void restoredSnapshot_takesDeltas() throws IOException {
+        Path file = dir.resolve("refdata.snap");
+        SnapshotFile.write(ScreeningSnapshot.build(ofac, peps), file);
+        var back = SnapshotFile.read(file);
+
+        var next = new ArrayList<>(ofac.subList(1, ofac.size()));
+        next.add(new SanctionEntry("OFAC:SDN", "Ivan Petrova", "SDGT", "individual", "103"));
+        var delta = back.update(next, peps, false);
+        var full = ScreeningSnapshot.build(next, peps);
+
+        assertThat(delta.ofacChanges().rebuilt()).isFalse();
+        for (String t : List.of("ivan", "petrova", "petroff"))
+            assertThat(delta.ofac().cleanNames().mayContain(t)).isEqualTo(full.ofac().cleanNames().mayContain(t));
+        var filter = new ScreeningService.Filter(null, null, "sdgt", null);
+        var uids = new ArrayList<String>();
+        for (int ord : delta.ofac().matching(filter).toArray())
+            uids.add(delta.ofac().entry(ord).uid());
+        assertThat(uids).containsExactlyInAnyOrder("102", "103");
+    }
+
+    @Test
+    void damagedFile_isRejected() throws IOException {
+        Path file = dir.resolve("refdata.snap");
+        SnapshotFile.write(ScreeningSnapshot.build(ofac, peps), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> SnapshotFile.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void restart_screensFromDiskWhenSourcesAreDown() {
+        var props = new RefdataProperties();
+        props.setSnapshotPath(dir.resolve("refdata.snap").toString());
+        var up = new ScreeningService(clientOf(ofac, SourceFetch.Status.FETCHED), pepClientOf(peps), props);
+        up.warmUp();
+        var expected = up.screenByName("ivan petrov");
+        up.shutdown();
+
+        var down = new ScreeningService(clientOf(List.of(), SourceFetch.Status.FAILED),
+                pepClientOf(List.of()), props);
+        down.warmUp();
+
+        assertThat(down.readiness()).isEqualTo(ScreeningService.Readiness.STALE);
+        assertThat(down.stats().ofacCount()).isEqualTo(ofac.size());
+        assertThat(down.stats().lastReload().mode()).isEqualTo("UNCHANGED");
+        assertThat(down.screenByName("ivan petrov")).isEqualTo(expected);
+        down.shutdown();
+    }
+
+    private static OfacClient clientOf(List<SanctionEntry> rows, SourceFetch.Status status) {
+        var client = Mockito.mock(OfacClient.class);
+        var report = new SourceFetch("OFAC:SDN", "http://sdn", status, rows.size(), 0, 0,
+                status == SourceFetch.Status.FAILED ? "connection refused" : null);
+        when(client.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(rows, List.of(report))));
+        return client;
+    }
+
+    // a failed PEP fetch with nothing seeded returns no rows, like the real client
+    private static PepClient pepClientOf(List<PepEntry> rows) {
+        var client = Mockito.mock(PepClient.class);
+        var status = rows.isEmpty() ? SourceFetch.Status.FAILED : SourceFetch.Status.FETCHED;
+        var report = new SourceFetch("PEP", "http://pep", status, rows.size(), 0, 0, null);
+        when(client.fetch(anyBoolean(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Fetched<>(new ArrayList<>(rows), List.of(report))));
+        return client;
+    }
+}
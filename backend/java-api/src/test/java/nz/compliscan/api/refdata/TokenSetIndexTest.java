@@ -0,0 +1,48 @@
+package nz.compliscan.api.refdata;
+
+import nz.compliscan.api.refdata.model.SanctionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static nz.compliscan.api.refdata.ScreeningSnapshot.ofacEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenSetIndexTest {
+
+    private static final List<ScreeningSnapshot.Entry> ENTRIES = List.of(
+            ofacEntry(new SanctionEntry("OFAC:SDN", "Ivan Petrov", "SDGT", "individual", "o0")),
+            ofacEntry(new SanctionEntry("OFAC:SDN", "PETROV, Ivan", "SDGT", "individual", "o1")),
+            ofacEntry(new SanctionEntry("OFAC:SDN", "Ivan Petrova", "SDGT", "individual", "o2")),
+            ofacEntry(new SanctionEntry("OFAC:SDN", "Ivan Ivan Petrov", "SDGT", "individual", "o3")),
+            ofacEntry(new SanctionEntry("OFAC:SDN", "Kim Jong", "SDGT", "individual", "o4",
+                    List.of("Petrov Ivan", "Ivan Petrov"))));
+
+    @Test
+    void lookup_findsExactAndReorderedNamesOnce() {
+        var columns = new EntryColumns.Builder(ENTRIES.size());
+        ENTRIES.forEach(columns::add);
+        var idx = new TokenSetIndex(columns.build(), 0, ENTRIES.size(), new BitSet());
+
+        assertThat(idx.lookup(NameTools.tokens("petrov ivan"))).containsExactly(0, 1, 3, 4);
+        assertThat(idx.lookup(NameTools.tokens("jong kim"))).containsExactly(4);
+        assertThat(idx.lookup(NameTools.tokens("ivan"))).isEmpty();
+        assertThat(idx.lookup(Set.of())).isEmpty();
+    }
+
+    @Test
+    void screeningIndex_skipsRemovedAndFindsAppendedEntries() {
+        var entries = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < 8; i++)
+            entries.add(ofacEntry(new SanctionEntry("OFAC:SDN", "Global Trading Holdings", "SDGT", "entity", "f" + i)));
+        // one hole and one appended entry stay under the compaction ratio
+        var idx = new ScreeningIndex(entries).withChanges(new int[] { 1 }, List.of(ofacEntry(
+                new SanctionEntry("OFAC:SDN", "ivan  PETROV", "SDGT", "individual", "o5"))));
+
+        assertThat(idx.sameTokens(NameTools.tokens("ivan petrov"))).containsExactly(0, 3, 4, 13);
+        assertThat(idx.compacted().sameTokens(NameTools.tokens("ivan petrov"))).containsExactly(0, 2, 3, 12);
+    }
+}
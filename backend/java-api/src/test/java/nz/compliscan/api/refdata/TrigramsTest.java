@@ -0,0 +1,16 @@
+package nz.compliscan.api.refdata;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramsTest {
+
+    @Test
+    void grams_padsNameAndDeduplicates() {
+        // " aa aa " -> " aa", "aa ", "a a", " aa", "aa " -> 3 distinct
+        assertThat(Trigrams.grams("aa aa")).hasSize(3);
+        assertThat(Trigrams.grams("")).isEmpty();
+        assertThat(Trigrams.grams("x")).hasSize(1);
+    }
+}